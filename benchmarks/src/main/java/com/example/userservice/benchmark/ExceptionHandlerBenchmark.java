@@ -0,0 +1,52 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.controller.GlobalExceptionHandler;
+import com.example.userservice.controller.UserController;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.util.concurrent.TimeUnit;
+
+/** Error path: building the exception, handling it in GlobalExceptionHandler, writing the body. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionHandlerBenchmark {
+  private GlobalExceptionHandler handler;
+  private ObjectMapper objectMapper;
+  private MethodParameter idParameter;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    handler = new GlobalExceptionHandler();
+    objectMapper = new ObjectMapper();
+    idParameter =
+        new MethodParameter(
+            UserController.class.getMethod("getUsersById", Long.class, WebRequest.class), 0);
+  }
+
+  @Benchmark
+  public byte[] argumentTypeMismatch() throws JsonProcessingException {
+    MethodArgumentTypeMismatchException ex =
+        new MethodArgumentTypeMismatchException(
+            "abc", Long.class, "id", idParameter, new NumberFormatException("abc"));
+    return objectMapper.writeValueAsBytes(
+        handler.handleMethodArgumentTypeMismatchException(ex).getBody());
+  }
+}
@@ -0,0 +1,249 @@
+package com.example.userservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load test for a running service; compares platform-thread, virtual-thread and
+ * reactive request execution. Start the service in one mode, then run:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.userservice.benchmark.LoadTest \
+ *     http://localhost:8888 200 30
+ * </pre>
+ *
+ * Arguments are base URL, concurrent clients and duration in seconds. The mix is paged list reads,
+ * birthday range reads and single-user reads, all of which take a database connection.
+ *
+ * <p>While the load runs, the service's actuator metrics are sampled once a second to report live
+ * threads, database connections in use and heap growth per in-flight request.
+ */
+public class LoadTest {
+  private static final int SEEDED_USERS = 10_000;
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String[] CONNECTION_METRICS = {
+    "hikaricp.connections.active", "r2dbc.pool.acquired"
+  };
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:8888";
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+    HttpClient httpClient =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newFixedThreadPool(clients))
+            .build();
+
+    seed(httpClient, baseUrl);
+    run(httpClient, baseUrl, clients, 5);
+    double idleHeap = metric(httpClient, baseUrl, "jvm.memory.used?tag=area:heap");
+    ServerSampler sampler = new ServerSampler(httpClient, baseUrl);
+    sampler.start();
+    Result result = run(httpClient, baseUrl, clients, seconds);
+    sampler.interrupt();
+    sampler.join();
+    long[] latencies = result.latencies;
+    Arrays.sort(latencies);
+    System.out.printf(
+        "clients=%d requests=%d errors=%d throughput=%.0f req/s p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+        clients,
+        latencies.length,
+        result.errors,
+        latencies.length / (double) seconds,
+        percentile(latencies, 0.5),
+        percentile(latencies, 0.99),
+        percentile(latencies, 0.999),
+        latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+    System.out.printf(
+        "server: threads=%.0f dbConnections=%.1f heap=%.0fMB heapPerInFlight=%.1fKB%n",
+        sampler.average(0),
+        sampler.average(1),
+        sampler.average(2) / (1 << 20),
+        Math.max(0, sampler.average(2) - idleHeap) / clients / 1024);
+    System.exit(0);
+  }
+
+  /** Seeds through {@code /users/batch}, or one user at a time where there is no batch endpoint. */
+  private static void seed(HttpClient httpClient, String baseUrl) throws Exception {
+    for (int batch = 0; batch < SEEDED_USERS / 500; batch++) {
+      StringBuilder body = new StringBuilder("[");
+      for (int i = 0; i < 500; i++) {
+        if (i > 0) {
+          body.append(',');
+        }
+        body.append(user(batch * 500 + i));
+      }
+      body.append(']');
+      if (post(httpClient, baseUrl + "/users/batch", body.toString()) >= 300) {
+        for (int i = 0; i < SEEDED_USERS; i++) {
+          post(httpClient, baseUrl + "/users", user(i));
+        }
+        return;
+      }
+    }
+  }
+
+  private static String user(int n) {
+    return "{\"email\":\"load"
+        + n
+        + System.nanoTime()
+        + "@example.com\",\"firstName\":\"Load\",\"lastName\":\"Test\",\"birthday\":\""
+        + (1950 + n % 50)
+        + "-0"
+        + (1 + n % 9)
+        + "-1"
+        + (n % 10)
+        + "\"}";
+  }
+
+  private static int post(HttpClient httpClient, String url, String body) throws Exception {
+    return httpClient
+        .send(
+            HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.discarding())
+        .statusCode();
+  }
+
+  /** Value of an actuator metric, or {@code NaN} when the service does not publish it. */
+  private static double metric(HttpClient httpClient, String baseUrl, String name) {
+    try {
+      HttpResponse<String> response =
+          httpClient.send(
+              HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).build(),
+              HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        return Double.NaN;
+      }
+      return MAPPER.readTree(response.body()).path("measurements").path(0).path("value").asDouble();
+    } catch (Exception e) {
+      return Double.NaN;
+    }
+  }
+
+  private static Result run(HttpClient httpClient, String baseUrl, int clients, int seconds)
+      throws Exception {
+    long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+    ExecutorService workers = Executors.newFixedThreadPool(clients);
+    List<Future<Result>> futures = new ArrayList<>();
+    for (int c = 0; c < clients; c++) {
+      futures.add(workers.submit(() -> client(httpClient, baseUrl, deadline)));
+    }
+    List<long[]> all = new ArrayList<>();
+    long errors = 0;
+    int total = 0;
+    for (Future<Result> future : futures) {
+      Result result = future.get();
+      all.add(result.latencies);
+      errors += result.errors;
+      total += result.latencies.length;
+    }
+    workers.shutdown();
+    long[] latencies = new long[total];
+    int position = 0;
+    for (long[] part : all) {
+      System.arraycopy(part, 0, latencies, position, part.length);
+      position += part.length;
+    }
+    return new Result(latencies, errors);
+  }
+
+  private static Result client(HttpClient httpClient, String baseUrl, long deadline) {
+    long[] latencies = new long[1024];
+    int count = 0;
+    long errors = 0;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (System.nanoTime() < deadline) {
+      String path =
+          switch (random.nextInt(3)) {
+            case 0 -> "/users?limit=20&after=" + random.nextInt(SEEDED_USERS);
+            case 1 -> "/users/byBirthdayRange?fromDate=1960-01-01&toDate=1960-12-31&size=20&page="
+                + random.nextInt(5);
+            default -> "/users/" + (1 + random.nextInt(SEEDED_USERS));
+          };
+      long start = System.nanoTime();
+      try {
+        HttpResponse<Void> response =
+            httpClient.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 500) {
+          errors++;
+        }
+      } catch (Exception e) {
+        errors++;
+      }
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = System.nanoTime() - start;
+    }
+    return new Result(Arrays.copyOf(latencies, count), errors);
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+  }
+
+  private record Result(long[] latencies, long errors) {}
+
+  /** Samples live threads, database connections in use and used heap once a second. */
+  private static class ServerSampler extends Thread {
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final double[] sums = new double[3];
+    private int samples;
+
+    ServerSampler(HttpClient httpClient, String baseUrl) {
+      this.httpClient = httpClient;
+      this.baseUrl = baseUrl;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          Thread.sleep(1000);
+        } catch (InterruptedException e) {
+          return;
+        }
+        double connections = Double.NaN;
+        for (String name : CONNECTION_METRICS) {
+          connections = metric(httpClient, baseUrl, name);
+          if (!Double.isNaN(connections)) {
+            break;
+          }
+        }
+        synchronized (this) {
+          sums[0] += metric(httpClient, baseUrl, "jvm.threads.live");
+          sums[1] += connections;
+          sums[2] += metric(httpClient, baseUrl, "jvm.memory.used?tag=area:heap");
+          samples++;
+        }
+      }
+    }
+
+    synchronized double average(int index) {
+      return samples == 0 ? Double.NaN : sums[index] / samples;
+    }
+  }
+}
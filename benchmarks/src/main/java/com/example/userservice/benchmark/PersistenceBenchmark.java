@@ -0,0 +1,153 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.UserServiceApplication;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.repo.UserRepository;
+import com.example.userservice.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link UserService} against embedded H2 with a seeded table. The {@code birthdayIndex} parameter
+ * compares the SQL range path with the in-memory birthday index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+  private static final int SEEDED_USERS = 10_000;
+
+  @Param({"false", "true"})
+  public boolean birthdayIndex;
+
+  private final AtomicLong emailSequence = new AtomicLong();
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private UserRepository userRepository;
+  private Date rangeFrom;
+  private Date rangeTo;
+  private List<UserDTO> batch;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context =
+        new SpringApplicationBuilder(UserServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "users.birthday-index.enabled=" + birthdayIndex,
+                "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN")
+            .run();
+    userService = context.getBean(UserService.class);
+    userRepository = context.getBean(UserRepository.class);
+    List<UserDTO> seed = new ArrayList<>(SEEDED_USERS);
+    for (int i = 0; i < SEEDED_USERS; i++) {
+      seed.add(newUser(LocalDate.of(1950, 1, 1).plusDays(i * 3L)));
+    }
+    userService.createAll(seed);
+    rangeFrom = date(LocalDate.of(1970, 1, 1));
+    rangeTo = date(LocalDate.of(1970, 12, 31));
+    batch = new ArrayList<>(100);
+    for (int i = 0; i < 100; i++) {
+      batch.add(newUser(LocalDate.of(1980, 10, 10)));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public CustomUser create() {
+    return userService.create(newUser(LocalDate.of(1980, 10, 10)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(100)
+  public List<CustomUser> createAllHundred() {
+    batch.forEach(user -> user.setEmail(nextEmail()));
+    return userService.createAll(batch);
+  }
+
+  @Benchmark
+  public CustomUser getUserByIdCached() {
+    return userService.getUserById(randomId());
+  }
+
+  @Benchmark
+  public Object findByIdUncached() {
+    return userRepository.findById(randomId()).orElse(null);
+  }
+
+  @Benchmark
+  public List<CustomUser> findUsersByBirthdayRange() {
+    return userService.findUsersByBirthdayRange(rangeFrom, rangeTo, 0, 100);
+  }
+
+  @Benchmark
+  public boolean updateWholeUser() {
+    long id = randomId();
+    return userService.update(
+        new CustomUser(
+            id,
+            nextEmail(),
+            "Maxim",
+            "Chikilev",
+            date(LocalDate.of(1980, 10, 10)),
+            "Moscow",
+            "+7 900 000 00 00"));
+  }
+
+  @Benchmark
+  public boolean patchPhoneNumber() {
+    UserPatchDTO patch = new UserPatchDTO();
+    patch.setPhoneNumber("+7 900 000 00 01");
+    return userService.patch(randomId(), patch);
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, SEEDED_USERS + 1);
+  }
+
+  private UserDTO newUser(LocalDate birthday) {
+    return new UserDTO(nextEmail(), "Maxim", "Chikilev", date(birthday), "Moscow", "+7 900 000 00 00");
+  }
+
+  private String nextEmail() {
+    return "user" + emailSequence.incrementAndGet() + "@example.com";
+  }
+
+  private static Date date(LocalDate localDate) {
+    return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+}
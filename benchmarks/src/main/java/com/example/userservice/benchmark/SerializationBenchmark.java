@@ -0,0 +1,102 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.entity.CustomUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson encoding of users in each response format the service negotiates, configured like the
+ * service ({@code spring.jackson.date-format}). Payload sizes, raw and gzipped, are printed once
+ * per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+  @Param({"json", "smile", "cbor"})
+  private String format;
+
+  private ObjectMapper objectMapper;
+  private CustomUser user;
+  private List<CustomUser> users;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper =
+        new ObjectMapper(factory(format)).setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+    user = user(1);
+    users = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      users.add(user(i));
+    }
+    System.out.printf(
+        "%s payload: singleUser=%d bytes, hundredUsers=%d bytes, hundredUsersGzip=%d bytes%n",
+        format, singleUser().length, hundredUsers().length, hundredUsersGzip().length);
+  }
+
+  @Benchmark
+  public byte[] singleUser() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(user);
+  }
+
+  @Benchmark
+  public byte[] hundredUsers() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(users);
+  }
+
+  /** The 100-user list as served with {@code server.compression.enabled}. */
+  @Benchmark
+  public byte[] hundredUsersGzip() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      objectMapper.writeValue(gzip, users);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static JsonFactory factory(String format) {
+    return switch (format) {
+      case "smile" -> new SmileFactory();
+      case "cbor" -> new CBORFactory();
+      default -> new JsonFactory();
+    };
+  }
+
+  static CustomUser user(long id) {
+    return new CustomUser(
+        id,
+        "user" + id + "@example.com",
+        "Maxim",
+        "Chikilev",
+        new Date(331_948_800_000L),
+        "Moscow, Tverskaya st. 1, apt. " + id,
+        "+7 900 000 00 00",
+        0L);
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.validation.BirthdayCutoffs;
+import com.example.userservice.validation.UserValidationRules;
+import com.example.userservice.validation.UserValidator;
+import org.apache.commons.validator.routines.EmailValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of {@code UserService.dataCorrectnessCheck} and of the email rule on its own. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+  private UserValidator validator;
+  private EmailValidator emailValidator;
+  private UserDTO validUser;
+  private UserDTO invalidUser;
+
+  @Setup
+  public void setUp() {
+    UserValidationRules rules = new UserValidationRules();
+    BirthdayCutoffs cutoffs = new BirthdayCutoffs(18);
+    validator =
+        new UserValidator(
+            List.of(
+                rules.emailRule(),
+                rules.firstNameRule(),
+                rules.lastNameRule(),
+                rules.adultRule(cutoffs),
+                rules.notInFutureRule(cutoffs),
+                rules.birthdayPresentRule()));
+    emailValidator = EmailValidator.getInstance();
+    validUser =
+        new UserDTO(
+            "maxim.chikilev@gmail.com", "Maxim", "Chikilev", date(LocalDate.of(1980, 10, 10)), "", "");
+    invalidUser =
+        new UserDTO("maxim.chikilev@gmail", "", "", date(LocalDate.now().plusYears(1)), "", "");
+  }
+
+  @Benchmark
+  public ErrorResponseDTO validUser() {
+    return validator.validate(validUser);
+  }
+
+  @Benchmark
+  public ErrorResponseDTO invalidUser() {
+    return validator.validate(invalidUser);
+  }
+
+  @Benchmark
+  public boolean emailValidator() {
+    return emailValidator.isValid(validUser.getEmail());
+  }
+
+  private static Date date(LocalDate localDate) {
+    return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+}
@@ -0,0 +1,18 @@
+package com.example.userservice.reactive;
+
+import com.example.userservice.validation.BirthdayCutoffs;
+import com.example.userservice.validation.UserValidationRules;
+import com.example.userservice.validation.UserValidator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+@SpringBootApplication
+@Import({BirthdayCutoffs.class, UserValidationRules.class, UserValidator.class})
+public class ReactiveUserServiceApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveUserServiceApplication.class, args);
+    }
+
+}
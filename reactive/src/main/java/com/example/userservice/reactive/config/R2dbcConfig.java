@@ -0,0 +1,51 @@
+package com.example.userservice.reactive.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * R2DBC drivers have no codec for {@link Date}; birthdays are bound and read as {@code DATE}
+ * columns via {@link LocalDate} in the system zone, matching what Hibernate does for the servlet
+ * service.
+ */
+@Configuration
+public class R2dbcConfig {
+
+  @Bean
+  public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+    return R2dbcCustomConversions.of(
+        DialectResolver.getDialect(connectionFactory),
+        List.of(DateToLocalDate.INSTANCE, LocalDateToDate.INSTANCE));
+  }
+
+  @WritingConverter
+  enum DateToLocalDate implements Converter<Date, LocalDate> {
+    INSTANCE;
+
+    @Override
+    public LocalDate convert(Date source) {
+      return source.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+  }
+
+  @ReadingConverter
+  enum LocalDateToDate implements Converter<LocalDate, Date> {
+    INSTANCE;
+
+    @Override
+    public Date convert(LocalDate source) {
+      return Date.from(source.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+  }
+}
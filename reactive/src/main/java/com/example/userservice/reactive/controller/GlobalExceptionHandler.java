@@ -0,0 +1,30 @@
+package com.example.userservice.reactive.controller;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebInputException;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+  @ExceptionHandler(ServerWebInputException.class)
+  public ResponseEntity<Object> handleServerWebInputException(ServerWebInputException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse("Unable to process the request", ex.getReason());
+    return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Object> handleOptimisticLockingFailureException(
+      OptimisticLockingFailureException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse(
+            "User was modified concurrently", "Reload the user and retry with its current version");
+    return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+  }
+
+  record ErrorResponse(String message, String details) {}
+}
@@ -0,0 +1,120 @@
+package com.example.userservice.reactive.controller;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.PageDTO;
+import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.reactive.entity.CustomUser;
+import com.example.userservice.reactive.service.UserService;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Same endpoints and status codes as the servlet {@code UserController}. List endpoints return a
+ * bounded page as JSON; clients asking for {@code application/x-ndjson} get the rows streamed,
+ * and R2DBC only fetches ahead of what the connection has written.
+ */
+@RestController
+@AllArgsConstructor
+public class UserController {
+  private final UserService userService;
+
+  @PostMapping(value = "/users")
+  public Mono<ResponseEntity<?>> addNewUser(@RequestBody CustomUser user) {
+    ErrorResponseDTO errorResponseDTO = userService.dataCorrectnessCheck(user);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return Mono.just(ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages()));
+    }
+    return userService.create(user).map(ResponseEntity::ok);
+  }
+
+  @GetMapping(value = "/users")
+  public Mono<ResponseEntity<PageDTO<CustomUser>>> getAllUsers(
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "100") int limit) {
+    return userService
+        .readPage(after, limit)
+        .map(
+            page ->
+                page.getContent().isEmpty()
+                    ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : new ResponseEntity<>(page, HttpStatus.OK));
+  }
+
+  @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<CustomUser> exportUsers() {
+    return userService.exportAll();
+  }
+
+  @GetMapping("/users/byBirthdayRange")
+  public Mono<ResponseEntity<List<CustomUser>>> getUsersByBirthdayRange(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date fromDate,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date toDate,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "100") int size) {
+    return userService
+        .findUsersByBirthdayRange(fromDate, toDate, page, size)
+        .collectList()
+        .map(
+            users ->
+                users.isEmpty()
+                    ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : new ResponseEntity<>(users, HttpStatus.OK));
+  }
+
+  @GetMapping(value = "/users/byBirthdayRange", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<CustomUser> streamUsersByBirthdayRange(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date fromDate,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date toDate,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "100") int size) {
+    return userService.findUsersByBirthdayRange(fromDate, toDate, page, size);
+  }
+
+  @GetMapping(value = "/users/{id}")
+  public Mono<ResponseEntity<CustomUser>> getUsersById(@PathVariable(name = "id") Long id) {
+    return userService
+        .getUserById(id)
+        .map(user -> new ResponseEntity<>(user, HttpStatus.OK))
+        .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @DeleteMapping(value = "/users/{id}")
+  public Mono<ResponseEntity<HttpStatus>> deleteUser(@PathVariable(name = "id") Long id) {
+    return userService
+        .delete(id)
+        .map(
+            deleted ->
+                deleted
+                    ? new ResponseEntity<>(HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  @PutMapping(value = "/users")
+  public Mono<ResponseEntity<?>> updateUser(@RequestBody CustomUser user) {
+    ErrorResponseDTO errorResponseDTO = userService.dataCorrectnessCheck(user);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return Mono.just(ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages()));
+    }
+    if (user.getVersion() == null) {
+      return Mono.just(
+          ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+              .body(List.of(UserDataErrors.VERSION_REQUIRED.getTitle())));
+    }
+    return userService
+        .update(user)
+        .map(
+            updated ->
+                updated
+                    ? new ResponseEntity<>(HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+}
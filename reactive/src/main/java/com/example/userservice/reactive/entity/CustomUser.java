@@ -0,0 +1,31 @@
+package com.example.userservice.reactive.entity;
+
+import com.example.userservice.entity.UserDetails;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.Date;
+
+/** R2DBC mapping of the {@code custom_user} table used by the servlet service. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("custom_user")
+public class CustomUser implements UserDetails {
+    @Id
+    private Long id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Date birthday;
+    private String address;
+    private String phoneNumber;
+    @Version
+    private Long version;
+}
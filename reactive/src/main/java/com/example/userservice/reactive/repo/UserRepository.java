@@ -0,0 +1,45 @@
+package com.example.userservice.reactive.repo;
+
+import com.example.userservice.reactive.entity.CustomUser;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+@Repository
+public interface UserRepository extends ReactiveCrudRepository<CustomUser, Long> {
+    Flux<CustomUser> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    Flux<CustomUser> findByBirthdayBetween(Date fromDate, Date toDate, Pageable pageable);
+
+    Flux<CustomUser> findAllByOrderById();
+
+    /**
+     * Overwrites a user in one statement. A null {@code version} updates unconditionally, otherwise
+     * the row must still carry that version.
+     */
+    @Modifying
+    @Query("update custom_user set email = :email, first_name = :firstName, last_name = :lastName, "
+            + "birthday = :birthday, address = :address, phone_number = :phoneNumber, "
+            + "version = version + 1 "
+            + "where id = :id and (cast(:version as bigint) is null or version = :version)")
+    Mono<Integer> updateUser(@Param("id") Long id,
+                             @Param("email") String email,
+                             @Param("firstName") String firstName,
+                             @Param("lastName") String lastName,
+                             @Param("birthday") Date birthday,
+                             @Param("address") String address,
+                             @Param("phoneNumber") String phoneNumber,
+                             @Param("version") Long version);
+
+    @Modifying
+    @Query("delete from custom_user where id = :id")
+    Mono<Integer> deleteUserById(@Param("id") Long id);
+}
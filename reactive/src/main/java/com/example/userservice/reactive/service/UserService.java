@@ -0,0 +1,124 @@
+package com.example.userservice.reactive.service;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.PageDTO;
+import com.example.userservice.entity.UserDetails;
+import com.example.userservice.reactive.entity.CustomUser;
+import com.example.userservice.reactive.repo.UserRepository;
+import com.example.userservice.validation.UserValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the servlet {@code UserService}. Validation runs the same
+ * {@link UserValidator} rules; everything that touches the database returns a publisher, and the
+ * row streams only pull as many rows from R2DBC as the subscriber requests.
+ */
+@Service
+public class UserService {
+  private static final Sort BIRTHDAY_ORDER = Sort.by("birthday", "id");
+
+  private final UserRepository userRepository;
+  private final UserValidator userValidator;
+
+  @Value("${users.page.max-limit:1000}")
+  private int maxPageLimit;
+
+  public UserService(UserRepository userRepository, UserValidator userValidator) {
+    this.userRepository = userRepository;
+    this.userValidator = userValidator;
+  }
+
+  public Mono<CustomUser> create(CustomUser user) {
+    user.setId(null);
+    user.setVersion(null);
+    return userRepository.save(user);
+  }
+
+  public Mono<PageDTO<CustomUser>> readPage(Long after, int limit) {
+    int pageSize = pageSize(limit);
+    return userRepository
+        .findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, Limit.of(pageSize + 1))
+        .collectList()
+        .map(users -> toPage(users, pageSize));
+  }
+
+  /** Every user in id order; rows are fetched as the subscriber requests them. */
+  public Flux<CustomUser> exportAll() {
+    return userRepository.findAllByOrderById();
+  }
+
+  public Mono<CustomUser> getUserById(Long id) {
+    return userRepository.findById(id);
+  }
+
+  public Flux<CustomUser> findUsersByBirthdayRange(Date fromDate, Date toDate, int page, int size) {
+    return userRepository.findByBirthdayBetween(
+        fromDate, toDate, PageRequest.of(Math.max(page, 0), pageSize(size), BIRTHDAY_ORDER));
+  }
+
+  /**
+   * Emits {@code true} when the user was updated and {@code false} when it does not exist. A
+   * version conflict is signalled as an {@link OptimisticLockingFailureException}.
+   */
+  public Mono<Boolean> update(CustomUser user) {
+    return userRepository
+        .updateUser(
+            user.getId(),
+            user.getEmail(),
+            user.getFirstName(),
+            user.getLastName(),
+            user.getBirthday(),
+            user.getAddress(),
+            user.getPhoneNumber(),
+            user.getVersion())
+        .flatMap(
+            updated -> {
+              if (updated > 0) {
+                return Mono.just(true);
+              }
+              if (user.getVersion() == null) {
+                return Mono.just(false);
+              }
+              return userRepository
+                  .existsById(user.getId())
+                  .flatMap(
+                      exists ->
+                          exists
+                              ? Mono.error(
+                                  new OptimisticLockingFailureException(
+                                      "User " + user.getId() + " was modified concurrently"))
+                              : Mono.just(false));
+            });
+  }
+
+  public Mono<Boolean> delete(Long id) {
+    return userRepository.deleteUserById(id).map(deleted -> deleted > 0);
+  }
+
+  public ErrorResponseDTO dataCorrectnessCheck(UserDetails user) {
+    return userValidator.validate(user);
+  }
+
+  private static PageDTO<CustomUser> toPage(List<CustomUser> users, int pageSize) {
+    Long nextCursor = null;
+    if (users.size() > pageSize) {
+      users = users.subList(0, pageSize);
+      nextCursor = users.get(pageSize - 1).getId();
+    }
+    return new PageDTO<>(users, nextCursor);
+  }
+
+  private int pageSize(int size) {
+    return Math.max(1, Math.min(size, maxPageLimit));
+  }
+}
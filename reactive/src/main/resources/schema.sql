@@ -0,0 +1,11 @@
+create table if not exists custom_user (
+    id bigint auto_increment primary key,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    birthday date,
+    address varchar(255),
+    phone_number varchar(255),
+    version bigint not null default 0
+);
+create index if not exists idx_custom_user_birthday on custom_user (birthday, id);
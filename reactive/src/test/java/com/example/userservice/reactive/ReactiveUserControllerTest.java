@@ -0,0 +1,178 @@
+package com.example.userservice.reactive;
+
+import com.example.userservice.reactive.entity.CustomUser;
+import com.example.userservice.reactive.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class ReactiveUserControllerTest {
+  @Autowired private WebTestClient webTestClient;
+  @Autowired private UserRepository userRepository;
+
+  @BeforeEach
+  void setUp() {
+    userRepository.deleteAll().block();
+  }
+
+  @Test
+  void createAndGetUser() {
+    CustomUser created =
+        webTestClient
+            .post()
+            .uri("/users")
+            .bodyValue(user("john@example.com", "1990-05-15"))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(CustomUser.class)
+            .returnResult()
+            .getResponseBody();
+
+    webTestClient
+        .get()
+        .uri("/users/{id}", created.getId())
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.email")
+        .isEqualTo("john@example.com")
+        .jsonPath("$.birthday")
+        .isEqualTo("1990-05-15");
+  }
+
+  @Test
+  void createRejectsInvalidUserWithSharedRules() {
+    webTestClient
+        .post()
+        .uri("/users")
+        .bodyValue(user("not-an-email", LocalDate.now().minusYears(10).toString()))
+        .exchange()
+        .expectStatus()
+        .isBadRequest()
+        .expectBody()
+        .jsonPath("$.length()")
+        .isEqualTo(2);
+  }
+
+  @Test
+  void getUserByIdReturnsNotFound() {
+    webTestClient.get().uri("/users/{id}", 12345).exchange().expectStatus().isNotFound();
+  }
+
+  @Test
+  void getAllUsersPagesByKeyset() {
+    for (int i = 0; i < 3; i++) {
+      userRepository.save(entity("user" + i + "@example.com", "1990-01-0" + (i + 1))).block();
+    }
+
+    webTestClient
+        .get()
+        .uri("/users?limit=2")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.content.length()")
+        .isEqualTo(2)
+        .jsonPath("$.nextCursor")
+        .isNotEmpty();
+  }
+
+  @Test
+  void byBirthdayRangeStreamsNdjsonWithBackpressure() {
+    for (int i = 0; i < 5; i++) {
+      userRepository.save(entity("user" + i + "@example.com", "1990-01-0" + (i + 1))).block();
+    }
+
+    StepVerifier.create(
+            webTestClient
+                .get()
+                .uri("/users/byBirthdayRange?fromDate=1990-01-01&toDate=1990-01-31")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CustomUser.class)
+                .getResponseBody(),
+            1)
+        .expectNextCount(1)
+        .thenRequest(4)
+        .expectNextCount(4)
+        .verifyComplete();
+
+    webTestClient
+        .get()
+        .uri("/users/byBirthdayRange?fromDate=1990-01-01&toDate=1990-01-31")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .contentType(MediaType.APPLICATION_JSON)
+        .expectBody()
+        .jsonPath("$.length()")
+        .isEqualTo(5)
+        .jsonPath("$[0].email")
+        .isEqualTo("user0@example.com");
+  }
+
+  @Test
+  void updateWithStaleVersionReturnsConflict() {
+    CustomUser saved = userRepository.save(entity("john@example.com", "1990-05-15")).block();
+    Map<String, Object> update = user("john.doe@example.com", "1990-05-15");
+    update.put("id", saved.getId());
+    update.put("version", saved.getVersion());
+
+    webTestClient.put().uri("/users").bodyValue(update).exchange().expectStatus().isOk();
+    webTestClient.put().uri("/users").bodyValue(update).exchange().expectStatus().isEqualTo(409);
+  }
+
+  @Test
+  void updateWithoutVersionReturnsPreconditionRequired() {
+    CustomUser saved = userRepository.save(entity("john@example.com", "1990-05-15")).block();
+    Map<String, Object> update = user("john.doe@example.com", "1990-05-15");
+    update.put("id", saved.getId());
+
+    webTestClient.put().uri("/users").bodyValue(update).exchange().expectStatus().isEqualTo(428);
+    StepVerifier.create(userRepository.findById(saved.getId()).map(CustomUser::getEmail))
+        .expectNext("john@example.com")
+        .verifyComplete();
+  }
+
+  @Test
+  void deleteUser() {
+    CustomUser saved = userRepository.save(entity("john@example.com", "1990-05-15")).block();
+
+    webTestClient.delete().uri("/users/{id}", saved.getId()).exchange().expectStatus().isOk();
+    webTestClient.delete().uri("/users/{id}", saved.getId()).exchange().expectStatus().isNotFound();
+  }
+
+  private static Map<String, Object> user(String email, String birthday) {
+    return new HashMap<>(
+        Map.of("email", email, "firstName", "John", "lastName", "Doe", "birthday", birthday));
+  }
+
+  private static CustomUser entity(String email, String birthday) {
+    return CustomUser.builder()
+        .email(email)
+        .firstName("John")
+        .lastName("Doe")
+        .birthday(
+            Date.from(LocalDate.parse(birthday).atStartOfDay(ZoneId.systemDefault()).toInstant()))
+        .build();
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.ImportSummaryDTO;
+import com.example.userservice.service.UserCsvImporter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command-line CSV import against the configured database, without starting the web server:
+ *
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.main-class=com.example.userservice.UserCsvImport \
+ *     -Dspring-boot.run.arguments="users.csv rejected.ndjson"
+ * </pre>
+ *
+ * Rejected rows are written as NDJSON to the report file (default {@code <csv>.rejected.ndjson})
+ * and the exit status is 1 when any row was rejected. The schema is never recreated by this
+ * command, whatever {@code ddl-auto} says.
+ */
+public class UserCsvImport {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: UserCsvImport <users.csv> [rejected.ndjson]");
+      System.exit(2);
+    }
+    Path csv = Path.of(args[0]);
+    Path report = Path.of(args.length > 1 ? args[1] : args[0] + ".rejected.ndjson");
+    String[] runArgs = Arrays.copyOf(args, args.length + 1);
+    runArgs[args.length] = "--spring.jpa.hibernate.ddl-auto=none";
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(UserServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(runArgs);
+    ImportSummaryDTO summary;
+    ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+    try (Reader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+        OutputStream out = Files.newOutputStream(report);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+      generator.setRootValueSeparator(null);
+      summary =
+          context
+              .getBean(UserCsvImporter.class)
+              .importCsv(
+                  in,
+                  row -> {
+                    try {
+                      objectMapper.writeValue(generator, row);
+                      generator.writeRaw('\n');
+                    } catch (IOException e) {
+                      throw new UncheckedIOException(e);
+                    }
+                  });
+    }
+    System.out.printf(
+        "Imported %d users, rejected %d (see %s)%n",
+        summary.getImported(), summary.getRejected(), report);
+    System.exit(SpringApplication.exit(context, () -> summary.getRejected() > 0 ? 1 : 0));
+  }
+}
@@ -0,0 +1,40 @@
+package com.example.userservice;
+
+import com.example.userservice.service.UserResharder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Command-line rebalancing after shard URLs were appended to {@code users.sharding.shard-urls},
+ * run while the service is stopped:
+ *
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.main-class=com.example.userservice.UserReshard \
+ *     -Dspring-boot.run.arguments="--users.sharding.shard-urls=jdbc:h2:tcp://a/users,jdbc:h2:tcp://b/users"
+ * </pre>
+ *
+ * The schema is never recreated by this command, whatever {@code ddl-auto} says.
+ */
+public class UserReshard {
+
+  public static void main(String[] args) throws SQLException {
+    String[] runArgs = Arrays.copyOf(args, args.length + 1);
+    runArgs[args.length] = "--spring.jpa.hibernate.ddl-auto=none";
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(UserServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(runArgs);
+    if (context.getBeanNamesForType(UserResharder.class).length == 0) {
+      System.err.println("users.sharding.shard-urls is not set, nothing to rebalance");
+      System.exit(SpringApplication.exit(context, () -> 2));
+    }
+    long moved = context.getBean(UserResharder.class).rebalance();
+    System.out.printf("Moved %d users to their shards%n", moved);
+    System.exit(SpringApplication.exit(context, () -> 0));
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.userservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Size and TTL of the user cache come from {@code spring.cache.caffeine.spec}. The caching advice
+ * is ordered outside the transaction advice so evictions happen after the write has committed.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+  public static final String USERS_CACHE = "users";
+}
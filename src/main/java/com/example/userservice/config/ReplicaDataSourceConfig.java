@@ -0,0 +1,95 @@
+package com.example.userservice.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write split, active when {@code users.datasource.replica-urls} lists at least one replica
+ * and sharding is off. The primary pool is built from {@code spring.datasource.*}; every replica
+ * gets its own pool with the same credentials, driver and {@code spring.datasource.hikari.*}
+ * settings. Read-only transactions are served by the replicas, everything else by the primary;
+ * see {@link ReplicaRoutingDataSource}. Startup fails when {@code spring.jpa.open-in-view} is on.
+ */
+@Configuration
+@ConditionalOnExpression(
+    "'${users.datasource.replica-urls:}' != '' and '${users.sharding.shard-urls:}' == ''")
+public class ReplicaDataSourceConfig {
+
+  /** Pool settings shared by the primary and every replica pool. */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariConfig replicaPoolSettings() {
+    return new HikariConfig();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      DataSourceProperties properties,
+      HikariConfig replicaPoolSettings,
+      @Value("${users.datasource.replica-urls}") List<String> replicaUrls,
+      @Value("${users.datasource.replica-max-lag:5s}") Duration maxLag,
+      @Value("${users.datasource.replica-check-interval:1s}") Duration checkInterval) {
+    HikariDataSource primary =
+        pool(replicaPoolSettings, properties, properties.determineUrl(), "primary");
+    List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+    for (int i = 0; i < replicaUrls.size(); i++) {
+      HikariDataSource replica =
+          pool(replicaPoolSettings, properties, replicaUrls.get(i).trim(), "replica-" + i);
+      replica.setReadOnly(true);
+      replicas.add(replica);
+    }
+    ReplicaRoutingDataSource routingDataSource =
+        new ReplicaRoutingDataSource(primary, replicas, maxLag);
+    routingDataSource.start(checkInterval);
+    return routingDataSource;
+  }
+
+  private static HikariDataSource pool(
+      HikariConfig settings, DataSourceProperties properties, String url, String poolName) {
+    // Not built from the config: that would open the pool now instead of on first use.
+    HikariDataSource pool = new HikariDataSource();
+    settings.copyStateTo(pool);
+    pool.setDriverClassName(properties.determineDriverClassName());
+    pool.setJdbcUrl(url);
+    pool.setUsername(properties.determineUsername());
+    pool.setPassword(properties.determinePassword());
+    pool.setPoolName(poolName);
+    return pool;
+  }
+
+  /** The data source JPA uses; connections are only checked out once the first statement runs. */
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+
+  /**
+   * Open-in-view keeps one connection for the whole request, so a write that follows a read-only
+   * call in the same request would reuse that call's replica connection.
+   */
+  @Bean
+  public InitializingBean replicaOpenInViewCheck(
+      @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+    return () -> {
+      if (openInView) {
+        throw new IllegalStateException(
+            "spring.jpa.open-in-view must be false when read replicas are configured");
+      }
+    };
+  }
+}
@@ -0,0 +1,184 @@
+package com.example.userservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to one of the replicas, round robin, and every
+ * other connection to the primary. It must sit behind a {@code LazyConnectionDataSourceProxy}:
+ * the transaction manager opens its connection before the transaction is marked read-only, and
+ * the proxy delays the real checkout until the first statement.
+ *
+ * <p>Replica health and lag come from a heartbeat row. Each check writes the current time into
+ * {@code replication_heartbeat} on the primary and reads the replicated row back from every
+ * replica; a replica whose row is missing, older than {@code maxLag}, or that fails to answer is
+ * skipped until a later check sees it healthy again. With no healthy replica, reads go to the
+ * primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+  static final String HEARTBEAT_TABLE = "replication_heartbeat";
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final long maxLagMillis;
+  private final AtomicInteger next = new AtomicInteger();
+  private ScheduledExecutorService healthChecks;
+  private volatile List<Replica> healthy = List.of();
+  private volatile boolean heartbeatTableCreated;
+
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+    this.primary = primary;
+    for (int i = 0; i < replicas.size(); i++) {
+      this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+    }
+    this.maxLagMillis = maxLag.toMillis();
+  }
+
+  /** Runs the health check now and then every {@code interval} on a background thread. */
+  public void start(Duration interval) {
+    checkReplicas();
+    healthChecks =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "replica-health-check");
+              thread.setDaemon(true);
+              return thread;
+            });
+    healthChecks.scheduleWithFixedDelay(
+        this::checkReplicas, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (healthChecks != null) {
+      healthChecks.shutdownNow();
+    }
+    closeIfPooled(primary);
+    for (Replica replica : replicas) {
+      closeIfPooled(replica.dataSource());
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return determineTarget().getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return determineTarget().getConnection(username, password);
+  }
+
+  /** Names of the replicas that currently receive reads. */
+  public List<String> getHealthyReplicas() {
+    return healthy.stream().map(Replica::name).toList();
+  }
+
+  /** Writes a heartbeat to the primary and re-evaluates every replica against it. */
+  public void checkReplicas() {
+    long now = System.currentTimeMillis();
+    try {
+      writeHeartbeat(now);
+    } catch (SQLException e) {
+      log.warn("Could not write replication heartbeat to the primary", e);
+    }
+    List<Replica> available = new ArrayList<>(replicas.size());
+    for (Replica replica : replicas) {
+      long lag;
+      try {
+        lag = now - readHeartbeat(replica.dataSource());
+      } catch (SQLException e) {
+        lag = Long.MAX_VALUE;
+        log.debug("Replica {} did not answer the health check", replica.name(), e);
+      }
+      if (lag <= maxLagMillis) {
+        available.add(replica);
+      } else if (healthy.contains(replica)) {
+        log.warn("Replica {} is {} ms behind, routing reads away from it", replica.name(), lag);
+      }
+    }
+    healthy = List.copyOf(available);
+  }
+
+  private DataSource determineTarget() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return primary;
+    }
+    List<Replica> candidates = healthy;
+    if (candidates.isEmpty()) {
+      return primary;
+    }
+    return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size())).dataSource();
+  }
+
+  /**
+   * Writes the heartbeat row with plain SQL that every database accepts: an update, and an insert
+   * only while the row does not exist yet. The table is created on the first successful write
+   * only, so the regular checks issue a single statement. Should another instance insert the row
+   * first, the insert fails and the next check updates it.
+   */
+  private void writeHeartbeat(long now) throws SQLException {
+    try (Connection connection = primary.getConnection()) {
+      connection.setAutoCommit(true);
+      if (!heartbeatTableCreated) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(
+              "create table if not exists " + HEARTBEAT_TABLE
+                  + " (id int primary key, beat timestamp not null)");
+        }
+        heartbeatTableCreated = true;
+      }
+      try (PreparedStatement statement =
+          connection.prepareStatement("update " + HEARTBEAT_TABLE + " set beat = ? where id = 1")) {
+        statement.setTimestamp(1, new Timestamp(now));
+        if (statement.executeUpdate() > 0) {
+          return;
+        }
+      }
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              "insert into " + HEARTBEAT_TABLE + " (id, beat) values (1, ?)")) {
+        statement.setTimestamp(1, new Timestamp(now));
+        statement.executeUpdate();
+      }
+    }
+  }
+
+  private static long readHeartbeat(DataSource replica) throws SQLException {
+    try (Connection connection = replica.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery("select beat from " + HEARTBEAT_TABLE + " where id = 1")) {
+      if (!resultSet.next()) {
+        throw new SQLException("No replication heartbeat on replica");
+      }
+      return resultSet.getTimestamp(1).getTime();
+    }
+  }
+
+  private static void closeIfPooled(DataSource dataSource) throws Exception {
+    if (dataSource instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  private record Replica(String name, DataSource dataSource) {}
+}
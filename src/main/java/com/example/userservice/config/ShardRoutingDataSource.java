@@ -0,0 +1,49 @@
+package com.example.userservice.config;
+
+import com.example.userservice.repo.ShardRouter;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Hands out connections of the shard selected with {@link ShardRouter} on the current thread.
+ * Like the replica routing it sits behind a {@code LazyConnectionDataSourceProxy}, so a
+ * transaction is bound to the shard that is current when its first statement runs.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+  private final List<DataSource> shards;
+
+  public ShardRoutingDataSource(List<DataSource> shards) {
+    this.shards = List.copyOf(shards);
+  }
+
+  public DataSource getShard(int shard) {
+    return shards.get(shard);
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return shards.get(ShardRouter.currentShard()).getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return shards.get(ShardRouter.currentShard()).getConnection(username, password);
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (DataSource shard : shards) {
+      if (shard instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+}
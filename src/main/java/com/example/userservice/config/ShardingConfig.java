@@ -0,0 +1,131 @@
+package com.example.userservice.config;
+
+import com.example.userservice.repo.ShardAwareIdGenerator;
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.service.UserResharder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.relational.SchemaManager;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Horizontal sharding, active when {@code users.sharding.shard-urls} lists the shard databases.
+ * Each shard gets its own pool with the {@code spring.datasource.*} credentials and driver and
+ * the {@code spring.datasource.hikari.*} settings, and {@code spring.datasource.url} is not used.
+ * Shards are addressed by position in the list, so the list must only ever grow at the end,
+ * followed by a run of {@code UserReshard}. Read replicas are not combined with sharding, and
+ * {@code spring.jpa.open-in-view} must be off.
+ */
+@Configuration
+@ConditionalOnExpression("'${users.sharding.shard-urls:}' != ''")
+public class ShardingConfig {
+  private static final Set<String> SCHEMA_CREATING_MODES = Set.of("create", "create-drop");
+
+  /** Pool settings shared by every shard pool. */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariConfig shardPoolSettings() {
+    return new HikariConfig();
+  }
+
+  @Bean
+  public ShardRoutingDataSource shardRoutingDataSource(
+      DataSourceProperties properties,
+      HikariConfig shardPoolSettings,
+      @Value("${users.sharding.shard-urls}") List<String> shardUrls) {
+    List<DataSource> shards = new ArrayList<>(shardUrls.size());
+    for (int i = 0; i < shardUrls.size(); i++) {
+      // Configured in place, so the pool still opens on first use.
+      HikariDataSource shard = new HikariDataSource();
+      shardPoolSettings.copyStateTo(shard);
+      shard.setDriverClassName(properties.determineDriverClassName());
+      shard.setJdbcUrl(shardUrls.get(i).trim());
+      shard.setUsername(properties.determineUsername());
+      shard.setPassword(properties.determinePassword());
+      shard.setPoolName("shard-" + i);
+      shards.add(shard);
+    }
+    return new ShardRoutingDataSource(shards);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+  }
+
+  /**
+   * Open-in-view binds the request's first connection, and with it the first shard used, to
+   * every later call of the request, so writes would land on whichever shard was read first.
+   */
+  @Bean
+  public InitializingBean shardOpenInViewCheck(
+      @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+    return () -> {
+      if (openInView) {
+        throw new IllegalStateException(
+            "spring.jpa.open-in-view must be false when sharding is configured");
+      }
+    };
+  }
+
+  /** Tells {@link ShardAwareIdGenerator} how many shards ids are spread over. */
+  @Bean
+  public HibernatePropertiesCustomizer shardCountCustomizer(
+      ShardRoutingDataSource shardRoutingDataSource) {
+    return properties ->
+        properties.put(
+            ShardAwareIdGenerator.SHARD_COUNT_SETTING,
+            String.valueOf(shardRoutingDataSource.getShardCount()));
+  }
+
+  @Bean
+  public UserResharder userResharder(
+      ShardRoutingDataSource shardRoutingDataSource,
+      @Value("${users.sharding.reshard-batch-size:1000}") int batchSize) {
+    return new UserResharder(shardRoutingDataSource, batchSize, ShardAwareIdGenerator.INCREMENT);
+  }
+
+  /**
+   * Hibernate creates the schema through the first connection it gets, which is on shard 0; this
+   * recreates the same tables and sequences on the other shards when {@code ddl-auto} creates
+   * them. With any other mode the shard schemas are managed outside the application.
+   */
+  @Bean
+  public InitializingBean shardSchemaExport(
+      EntityManagerFactory entityManagerFactory,
+      ShardRouter shardRouter,
+      @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+    return () -> {
+      if (!SCHEMA_CREATING_MODES.contains(ddlAuto)) {
+        return;
+      }
+      SchemaManager schemaManager =
+          entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager();
+      for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+        shardRouter.onShard(
+            shard,
+            () -> {
+              schemaManager.dropMappedObjects(true);
+              schemaManager.exportMappedObjects(true);
+            });
+      }
+    };
+  }
+}
@@ -1,7 +1,12 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.entity.CustomUser;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -13,6 +18,8 @@ import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.util.Locale;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -73,6 +80,52 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
   }
 
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Object> handleOptimisticLockingFailureException(
+      OptimisticLockingFailureException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse(
+            "User was modified concurrently", "Reload the user and retry with its current version");
+    return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(DuplicateKeyException.class)
+  public ResponseEntity<Object> handleDuplicateKeyException(DuplicateKeyException ex) {
+    ErrorResponse errorResponse = new ErrorResponse("User already exists", ex.getMessage());
+    return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * A concurrent insert that got past the duplicate check is stopped by the unique email index;
+   * any other violated constraint is reported as a failed write.
+   */
+  @ExceptionHandler(DataIntegrityViolationException.class)
+  public ResponseEntity<Object> handleDataIntegrityViolationException(
+      DataIntegrityViolationException ex) {
+    if (violatesEmailIndex(ex)) {
+      ErrorResponse errorResponse =
+          new ErrorResponse("User already exists", "Email is already registered");
+      return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+    ErrorResponse errorResponse =
+        new ErrorResponse("User could not be stored", "The data violates a database constraint");
+    return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  private static boolean violatesEmailIndex(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException violation
+          && violation.getConstraintName() != null
+          && violation
+              .getConstraintName()
+              .toLowerCase(Locale.ROOT)
+              .contains(CustomUser.EMAIL_UNIQUE_INDEX)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   static class ErrorResponse {
     private String message;
     private String details;
@@ -0,0 +1,145 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.entity.UserDataErrors;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Responses of requests sent with an {@code Idempotency-Key} header, so a client retrying after a
+ * timeout gets the original answer instead of a second write. The first request with a key runs
+ * the handler; a retry with the same key and body replays the stored response, and one that
+ * arrives while the first is still running waits for it rather than doing the work again. Reusing
+ * a key for a different body is refused with 422. Handlers that throw are not stored, so the
+ * retry runs again. Entries are bounded by {@code users.idempotency.max-entries} and expire
+ * {@code users.idempotency.ttl} after they were created.
+ */
+@Component
+public class IdempotencyStore {
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final Cache<String, Entry> entries;
+  private final Duration waitTimeout;
+  private final Counter executed;
+  private final Counter replayed;
+  private final Counter merged;
+  private final Counter mismatched;
+  private final Counter timedOut;
+
+  public IdempotencyStore(
+      MeterRegistry meterRegistry,
+      @Value("${users.idempotency.max-entries:100000}") long maxEntries,
+      @Value("${users.idempotency.ttl:24h}") Duration ttl,
+      @Value("${users.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+    this.entries = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    this.waitTimeout = waitTimeout;
+    this.executed = counter(meterRegistry, "executed");
+    this.replayed = counter(meterRegistry, "replayed");
+    this.merged = counter(meterRegistry, "merged");
+    this.mismatched = counter(meterRegistry, "mismatched");
+    this.timedOut = counter(meterRegistry, "timed-out");
+    Gauge.builder("users.idempotency.replay-ratio", this, IdempotencyStore::replayRatio)
+        .description("Share of keyed requests answered without running the handler")
+        .register(meterRegistry);
+    Gauge.builder("users.idempotency.entries", entries, Cache::estimatedSize)
+        .description("Responses held for idempotent replay, including requests in flight")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Runs {@code handler} for the first request with {@code key} on {@code operation} and returns
+   * its response; later requests get that response back with {@value #REPLAYED_HEADER} set.
+   * Without a key the handler simply runs.
+   */
+  public ResponseEntity<?> execute(
+      String operation, String key, Object request, Supplier<ResponseEntity<?>> handler) {
+    if (key == null) {
+      return handler.get();
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      return ResponseEntity.badRequest()
+          .body(List.of(UserDataErrors.IDEMPOTENCY_KEY.getTitle() + MAX_KEY_LENGTH));
+    }
+    String entryKey = operation + ' ' + key;
+    Entry entry = new Entry(request, new CompletableFuture<>());
+    Entry existing = entries.asMap().putIfAbsent(entryKey, entry);
+    if (existing == null) {
+      return run(entryKey, entry, handler);
+    }
+    if (!Objects.equals(existing.request(), request)) {
+      mismatched.increment();
+      return ResponseEntity.unprocessableEntity()
+          .body(List.of(UserDataErrors.IDEMPOTENCY_KEY_REUSED.getTitle() + key));
+    }
+    boolean completed = existing.response().isDone();
+    ResponseEntity<?> response;
+    try {
+      response = existing.response().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      timedOut.increment();
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .body(List.of(UserDataErrors.IDEMPOTENCY_IN_PROGRESS.getTitle() + key));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for request " + key, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Request " + key + " failed", e.getCause());
+    }
+    (completed ? replayed : merged).increment();
+    return ResponseEntity.status(response.getStatusCode())
+        .headers(response.getHeaders())
+        .header(REPLAYED_HEADER, "true")
+        .body(response.getBody());
+  }
+
+  /** Keyed requests answered from the store, replayed or merged, as a share of all of them. */
+  public double replayRatio() {
+    double answered = replayed.count() + merged.count();
+    double total = answered + executed.count();
+    return total == 0 ? 0 : answered / total;
+  }
+
+  private ResponseEntity<?> run(
+      String entryKey, Entry entry, Supplier<ResponseEntity<?>> handler) {
+    ResponseEntity<?> response;
+    try {
+      response = handler.get();
+    } catch (RuntimeException | Error e) {
+      entries.asMap().remove(entryKey, entry);
+      entry.response().completeExceptionally(e);
+      throw e;
+    }
+    entry.response().complete(response);
+    executed.increment();
+    return response;
+  }
+
+  private static Counter counter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("users.idempotency.requests")
+        .description("Requests carrying an Idempotency-Key, by how they were answered")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private record Entry(Object request, CompletableFuture<ResponseEntity<?>> response) {}
+}
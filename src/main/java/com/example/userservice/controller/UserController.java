@@ -1,25 +1,76 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.BatchCreateResponseDTO;
 import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.ImportSummaryDTO;
+import com.example.userservice.dto.IngestStatusDTO;
+import com.example.userservice.dto.LookupResponseDTO;
+import com.example.userservice.dto.PageDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.dto.UserVersionDTO;
 import com.example.userservice.entity.CustomUser;
+import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.service.UserChangeStream;
+import com.example.userservice.service.UserCsvImporter;
+import com.example.userservice.service.UserIngestQueue;
 import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.AllArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 @RestController
 @AllArgsConstructor
 public class UserController {
+  private static final String NO_ASYNC_TIMEOUT = UserController.class.getName() + ".noAsyncTimeout";
+
   private final UserService userService;
+  private final ObjectMapper objectMapper;
+  private final UserIngestQueue userIngestQueue;
+  private final UserCsvImporter userCsvImporter;
+  private final UserChangeStream userChangeStream;
+  private final IdempotencyStore idempotencyStore;
 
+  /**
+   * A retry with the same {@code Idempotency-Key} gets the first response back without creating
+   * the user again; see {@link IdempotencyStore}.
+   */
   @PostMapping(value = "/users")
-  public ResponseEntity<?> addNewUser(@RequestBody UserDTO userDTO) {
+  public ResponseEntity<?> addNewUser(
+      @RequestBody UserDTO userDTO,
+      @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+    return idempotencyStore.execute(
+        "POST /users", idempotencyKey, userDTO, () -> createUser(userDTO));
+  }
+
+  private ResponseEntity<?> createUser(UserDTO userDTO) {
     ErrorResponseDTO errorResponseDTO =
         userService.dataCorrectnessCheck(userDTO);
     if (errorResponseDTO.isErrorsPresent()) {
@@ -29,30 +80,255 @@ public class UserController {
     }
   }
 
+  /**
+   * Validates the user and queues it for a batched write, answering 202 with a status handle. 429
+   * means the queue is full; 404 means async creation is not enabled.
+   */
+  @PostMapping(value = "/users/async")
+  public ResponseEntity<?> addNewUserAsync(@RequestBody UserDTO userDTO) {
+    if (!userIngestQueue.isEnabled()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (!userIngestQueue.isAccepting()) {
+      return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    ErrorResponseDTO errorResponseDTO = userService.dataCorrectnessCheck(userDTO);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    IngestStatusDTO status = userIngestQueue.submit(userDTO);
+    if (status == null) {
+      return userIngestQueue.isAccepting()
+          ? new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS)
+          : new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return ResponseEntity.accepted()
+        .location(URI.create("/users/async/" + status.getId()))
+        .body(status);
+  }
+
+  @GetMapping(value = "/users/async/{id}")
+  public ResponseEntity<IngestStatusDTO> getAsyncStatus(@PathVariable(name = "id") String id) {
+    IngestStatusDTO status = userIngestQueue.getStatus(id);
+    return status != null
+        ? new ResponseEntity<>(status, HttpStatus.OK)
+        : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+
+  @PostMapping(value = "/users/batch")
+  public ResponseEntity<BatchCreateResponseDTO> addNewUsers(@RequestBody List<UserDTO> userDTOs) {
+    BatchCreateResponseDTO response = new BatchCreateResponseDTO();
+    List<UserDTO> validUsers = new ArrayList<>(userDTOs.size());
+    List<Integer> validIndexes = new ArrayList<>(userDTOs.size());
+    for (int i = 0; i < userDTOs.size(); i++) {
+      ErrorResponseDTO errorResponseDTO = userService.dataCorrectnessCheck(userDTOs.get(i));
+      if (errorResponseDTO.isErrorsPresent()) {
+        response.addErrors(i, errorResponseDTO.getErrorMessages());
+      } else {
+        validUsers.add(userDTOs.get(i));
+        validIndexes.add(i);
+      }
+    }
+    if (validUsers.isEmpty()) {
+      return ResponseEntity.badRequest().body(response);
+    }
+    Set<Integer> duplicates = userService.findDuplicateEmails(validUsers);
+    if (!duplicates.isEmpty()) {
+      List<UserDTO> uniqueUsers = new ArrayList<>(validUsers.size());
+      for (int i = 0; i < validUsers.size(); i++) {
+        if (duplicates.contains(i)) {
+          response.addErrors(
+              validIndexes.get(i),
+              List.of(UserDataErrors.EMAIL_TAKEN.getTitle() + validUsers.get(i).getEmail()));
+        } else {
+          uniqueUsers.add(validUsers.get(i));
+        }
+      }
+      if (uniqueUsers.isEmpty()) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+      }
+      validUsers = uniqueUsers;
+    }
+    response.setCreated(userService.createAll(validUsers));
+    return response.isErrorsPresent()
+        ? ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response)
+        : ResponseEntity.ok(response);
+  }
+
+  /**
+   * Resolves many ids in one call; ids with no user are listed under {@code missing}. Lists longer
+   * than {@code users.page.max-limit} are rejected.
+   */
+  @PostMapping(value = "/users/lookup")
+  public ResponseEntity<?> lookupUsers(@RequestBody List<Long> ids) {
+    ErrorResponseDTO errorResponseDTO = userService.lookupCorrectnessCheck(ids);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    return ResponseEntity.ok(userService.lookup(ids));
+  }
+
   @GetMapping(value = "/users")
-  public ResponseEntity<List<CustomUser>> getAllUsers() {
-    final List<CustomUser> users = userService.readAll();
-    return users != null && !users.isEmpty()
-        ? new ResponseEntity<>(users, HttpStatus.OK)
+  public ResponseEntity<PageDTO<CustomUser>> getAllUsers(
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "100") int limit) {
+    final PageDTO<CustomUser> page = userService.readPage(after, limit);
+    return page != null && !page.getContent().isEmpty()
+        ? new ResponseEntity<>(page, HttpStatus.OK)
+        : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+  /** Same page as {@code GET /users}, with each user reduced to the requested fields. */
+  @GetMapping(value = "/users", params = "fields")
+  public ResponseEntity<?> getAllUserFields(
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "100") int limit,
+      @RequestParam List<String> fields) {
+    ErrorResponseDTO errorResponseDTO = userService.fieldsCorrectnessCheck(fields);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    final PageDTO<Map<String, Object>> page = userService.readPage(after, limit, fields);
+    return !page.getContent().isEmpty()
+        ? new ResponseEntity<>(page, HttpStatus.OK)
         : new ResponseEntity<>(HttpStatus.NOT_FOUND);
   }
+
+  /** Streams every user as NDJSON, for as long as that takes; see {@link #withoutAsyncTimeout}. */
+  @GetMapping(value = "/users/export", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> exportUsers(WebRequest request) {
+    withoutAsyncTimeout(request);
+    ObjectWriter writer = objectMapper.writerFor(CustomUser.class);
+    StreamingResponseBody body =
+        out -> {
+          JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+          generator.setRootValueSeparator(null);
+          userService.exportAll(user -> writeLine(writer, generator, user));
+          generator.flush();
+        };
+    return ResponseEntity.ok(body);
+  }
+
+  /**
+   * Imports a CSV body (see {@link UserCsvImporter} for the columns) while it is uploaded. The
+   * response streams one NDJSON line per rejected row as the import reaches it, then a summary.
+   * Like the export, it is not cut off by the async request timeout.
+   */
+  @PostMapping(value = "/users/import", consumes = "text/csv", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> importUsers(InputStream csv, WebRequest request) {
+    withoutAsyncTimeout(request);
+    ObjectWriter writer = objectMapper.writer();
+    StreamingResponseBody body =
+        out -> {
+          JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+          generator.setRootValueSeparator(null);
+          ImportSummaryDTO summary =
+              userCsvImporter.importCsv(
+                  new InputStreamReader(csv, StandardCharsets.UTF_8),
+                  row -> writeLine(writer, generator, row));
+          writeLine(writer, generator, summary);
+          generator.flush();
+        };
+    return ResponseEntity.ok(body);
+  }
+
+  /**
+   * Server-Sent Events feed of user changes. Resumes after the event id in the {@code
+   * Last-Event-ID} header or the {@code since} parameter; without either it starts with the next
+   * change. An id from before a restart is answered with a reset.
+   */
+  @GetMapping(value = "/users/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamChanges(
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+      @RequestParam(required = false) String since) {
+    return userChangeStream.subscribe(lastEventId != null ? lastEventId : since);
+  }
+
   @GetMapping("/users/byBirthdayRange")
-  public ResponseEntity<List<CustomUser>> getUsersByBirthdayRange(
+  public ResponseEntity<?> getUsersByBirthdayRange(
           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date fromDate,
-          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date toDate) {
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date toDate,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam(defaultValue = "100") int size,
+          WebRequest request) {
+    ErrorResponseDTO errorResponseDTO = userService.pageCorrectnessCheck(page, size);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    // Only an ETag: removing a user from the range would not move a Last-Modified date forward.
+    if (isConditional(request)) {
+      List<UserVersionDTO> versions =
+          userService.findVersionsByBirthdayRange(fromDate, toDate, page, size);
+      if (!versions.isEmpty() && request.checkNotModified(UserVersionDTO.eTag(versions))) {
+        return null;
+      }
+    }
+    List<CustomUser> users = userService.findUsersByBirthdayRange(fromDate, toDate, page, size);
+    return users != null && !users.isEmpty()
+            ? ResponseEntity.ok()
+                .eTag(UserVersionDTO.eTag(users.stream().map(UserVersionDTO::of).toList()))
+                .body(users)
+            : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+
+  @GetMapping(value = "/users/byBirthdayRange", params = "fields")
+  public ResponseEntity<?> getUserFieldsByBirthdayRange(
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date fromDate,
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date toDate,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam(defaultValue = "100") int size,
+          @RequestParam List<String> fields) {
+    ErrorResponseDTO errorResponseDTO = userService.fieldsCorrectnessCheck(fields);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    errorResponseDTO = userService.pageCorrectnessCheck(page, size);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    List<Map<String, Object>> users =
+        userService.findUsersByBirthdayRange(fromDate, toDate, page, size, fields);
+    return !users.isEmpty()
+            ? new ResponseEntity<>(users, HttpStatus.OK)
+            : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
 
-    List<CustomUser> users = userService.findUsersByBirthdayRange(fromDate, toDate);
+  @GetMapping("/users/upcomingBirthdays")
+  public ResponseEntity<?> getUsersWithUpcomingBirthdays(
+          @RequestParam(defaultValue = "7") int days,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam(defaultValue = "100") int size) {
+    ErrorResponseDTO errorResponseDTO = userService.pageCorrectnessCheck(page, size);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    List<CustomUser> users = userService.findUpcomingBirthdays(days, page, size);
     return users != null && !users.isEmpty()
             ? new ResponseEntity<>(users, HttpStatus.OK)
             : new ResponseEntity<>(HttpStatus.NOT_FOUND);
   }
 
   @GetMapping(value = "/users/{id}")
-  public ResponseEntity<CustomUser> getUsersById(@PathVariable(name = "id") Long id) {
+  public ResponseEntity<CustomUser> getUsersById(
+      @PathVariable(name = "id") Long id, WebRequest request) {
+    if (isConditional(request)) {
+      UserVersionDTO version = userService.getUserVersion(id);
+      if (version != null
+          && request.checkNotModified(version.eTag(), version.lastModifiedMillis())) {
+        return null;
+      }
+    }
     final CustomUser user = userService.getUserById(id);
-    return user != null
-        ? new ResponseEntity<>(user, HttpStatus.OK)
-        : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    if (user == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (user.getVersion() != null) {
+      response.eTag(UserVersionDTO.of(user).eTag());
+    }
+    if (user.getLastModified() != null) {
+      response.lastModified(user.getLastModified().getTime());
+    }
+    return response.body(user);
   }
 
   @DeleteMapping(value = "/users/{id}")
@@ -62,17 +338,79 @@ public class UserController {
         : new ResponseEntity<>(HttpStatus.NOT_FOUND);
   }
 
+  /** Accepts an {@code Idempotency-Key} like {@link #addNewUser}. */
   @PutMapping(value = "/users")
-  public ResponseEntity<?> updateUser(@RequestBody CustomUser user){
+  public ResponseEntity<?> updateUser(
+      @RequestBody CustomUser user,
+      @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+    return idempotencyStore.execute("PUT /users", idempotencyKey, user, () -> replaceUser(user));
+  }
+
+  /**
+   * A full replace must name the version it was based on, so two concurrent replaces cannot
+   * silently overwrite each other: without one the request fails with 428, with a stale one 409.
+   */
+  private ResponseEntity<?> replaceUser(CustomUser user) {
       ErrorResponseDTO errorResponseDTO =
               userService.dataCorrectnessCheck(user);
       if (errorResponseDTO.isErrorsPresent()) {
           return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
-      } else {
-        return userService.update(user)
-                ? new ResponseEntity<>(HttpStatus.OK)
-                : new ResponseEntity<>(HttpStatus.NOT_FOUND);
       }
+      if (user.getVersion() == null) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+            .body(List.of(UserDataErrors.VERSION_REQUIRED.getTitle()));
+      }
+      return userService.update(user)
+          ? new ResponseEntity<>(HttpStatus.OK)
+          : new ResponseEntity<>(HttpStatus.NOT_FOUND);
   }
 
+  @PatchMapping(value = "/users/{id}")
+  public ResponseEntity<?> patchUser(
+      @PathVariable(name = "id") Long id, @RequestBody UserPatchDTO patch) {
+    ErrorResponseDTO errorResponseDTO = userService.patchCorrectnessCheck(patch);
+    if (errorResponseDTO.isErrorsPresent()) {
+      return ResponseEntity.badRequest().body(errorResponseDTO.getErrorMessages());
+    }
+    return userService.patch(id, patch)
+        ? new ResponseEntity<>(HttpStatus.OK)
+        : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+
+  /**
+   * Lets the streaming body of {@code request} run past {@code spring.mvc.async.request-timeout}.
+   * A full-table stream lasts as long as the data does; a client that goes away fails the next
+   * write instead.
+   */
+  private static void withoutAsyncTimeout(WebRequest request) {
+    WebAsyncUtils.getAsyncManager(request)
+        .registerCallableInterceptor(
+            NO_ASYNC_TIMEOUT,
+            new CallableProcessingInterceptor() {
+              @Override
+              public <T> void beforeConcurrentHandling(
+                  NativeWebRequest asyncRequest, Callable<T> task) {
+                ((AsyncWebRequest) asyncRequest).setTimeout(-1L);
+              }
+            });
+  }
+
+  private static void writeLine(ObjectWriter writer, JsonGenerator generator, Object value) {
+    try {
+      writer.writeValue(generator, value);
+      generator.writeRaw('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Conditional requests are answered from a version lookup first; {@link
+   * WebRequest#checkNotModified} then sets the 304 status and validators, and returning {@code
+   * null} leaves the body empty.
+   */
+  private static boolean isConditional(WebRequest request) {
+    return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+        || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+  }
 }
@@ -0,0 +1,25 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.CustomUser;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+public class BatchCreateResponseDTO {
+  private List<CustomUser> created = new ArrayList<>();
+  private Map<Integer, List<String>> errors = new TreeMap<>();
+
+  public void addErrors(int index, List<String> errorMessages) {
+    errors.put(index, errorMessages);
+  }
+
+  public boolean isErrorsPresent() {
+    return !errors.isEmpty();
+  }
+}
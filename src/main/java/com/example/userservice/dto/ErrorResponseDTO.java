@@ -1,16 +1,40 @@
 package com.example.userservice.dto;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
 public class ErrorResponseDTO {
+  private static final ErrorResponseDTO VALID = new ErrorResponseDTO(Collections.emptyList());
+
+  @Setter(AccessLevel.NONE)
   private List<String> errorMessages = new ArrayList<>();
 
+  private ErrorResponseDTO(List<String> errorMessages) {
+    this.errorMessages = errorMessages;
+  }
+
+  /** Shared result for a valid user; it is immutable and must not be added to. */
+  public static ErrorResponseDTO valid() {
+    return VALID;
+  }
+
+  public static ErrorResponseDTO of(String errorMessage) {
+    ErrorResponseDTO errorResponse = new ErrorResponseDTO();
+    errorResponse.addErrorMessage(errorMessage);
+    return errorResponse;
+  }
+
   public void addErrorMessage(String errorMessage) {
+    if (this == VALID) {
+      throw new IllegalStateException("The shared valid result cannot take error messages");
+    }
     errorMessages.add(errorMessage);
   }
 
@@ -0,0 +1,29 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of an asynchronously submitted user. {@code userId} is set once the user is created and
+ * {@code error} when the write failed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestStatusDTO {
+  public enum State {
+    QUEUED,
+    CREATED,
+    FAILED
+  }
+
+  private String id;
+  private State state;
+  private Long userId;
+  private String error;
+
+  public static IngestStatusDTO queued(String id) {
+    return new IngestStatusDTO(id, State.QUEUED, null, null);
+  }
+}
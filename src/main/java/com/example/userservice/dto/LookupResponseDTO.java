@@ -0,0 +1,18 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.CustomUser;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Result of a bulk lookup: users in the order their ids were requested, and ids with no user. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LookupResponseDTO {
+  private List<CustomUser> found = new ArrayList<>();
+  private List<Long> missing = new ArrayList<>();
+}
@@ -0,0 +1,16 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** A CSV row that was not imported, by the line it starts on. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RejectedRowDTO {
+  private long line;
+  private List<String> errors;
+}
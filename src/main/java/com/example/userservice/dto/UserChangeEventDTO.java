@@ -0,0 +1,27 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * A committed change to one user. Events carry only the id; consumers resolve the current state
+ * with {@code POST /users/lookup}, and a deleted user is reported there as missing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangeEventDTO {
+  public enum Type {
+    CREATED,
+    UPDATED,
+    DELETED
+  }
+
+  private long sequence;
+  private Type type;
+  private Long userId;
+  private Date timestamp;
+}
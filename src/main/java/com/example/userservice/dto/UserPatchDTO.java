@@ -0,0 +1,74 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.UserDetails;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Partial user document for PATCH. Jackson only calls the setters of properties present in the
+ * request body, so {@link #isPresent(String)} tells an omitted field from one explicitly set to
+ * null.
+ */
+@Getter
+@NoArgsConstructor
+public class UserPatchDTO implements UserDetails {
+    public static final String EMAIL = "email";
+    public static final String FIRST_NAME = "firstName";
+    public static final String LAST_NAME = "lastName";
+    public static final String BIRTHDAY = "birthday";
+    public static final String ADDRESS = "address";
+    public static final String PHONE_NUMBER = "phoneNumber";
+
+    @JsonIgnore
+    private final Set<String> presentFields = new HashSet<>();
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Date birthday;
+    private String address;
+    private String phoneNumber;
+    private Long version;
+
+    public boolean isPresent(String field) {
+        return presentFields.contains(field);
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+        presentFields.add(EMAIL);
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        presentFields.add(FIRST_NAME);
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+        presentFields.add(LAST_NAME);
+    }
+
+    public void setBirthday(Date birthday) {
+        this.birthday = birthday;
+        presentFields.add(BIRTHDAY);
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+        presentFields.add(ADDRESS);
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+        presentFields.add(PHONE_NUMBER);
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.CustomUser;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Version stamp of a user row. It is all a conditional GET needs, so it is read on its own instead
+ * of loading and serializing the user.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserVersionDTO {
+  private Long id;
+  private Long version;
+  private Date lastModified;
+
+  public static UserVersionDTO of(CustomUser user) {
+    return new UserVersionDTO(user.getId(), user.getVersion(), user.getLastModified());
+  }
+
+  /** Strong ETag of a single user; {@code null} when the user has not been persisted. */
+  public String eTag() {
+    return version == null ? null : "\"" + version + "\"";
+  }
+
+  /** Strong ETag of a list of users: it changes whenever a user is added, removed or updated. */
+  public static String eTag(List<UserVersionDTO> versions) {
+    StringBuilder ids = new StringBuilder(versions.size() * 16);
+    for (UserVersionDTO version : versions) {
+      ids.append(version.getId()).append(':').append(version.getVersion()).append(',');
+    }
+    return "\"" + DigestUtils.md5DigestAsHex(ids.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+  }
+
+  /** {@code lastModified} in epoch millis, or -1 when unknown. */
+  public long lastModifiedMillis() {
+    return lastModified == null ? -1 : lastModified.getTime();
+  }
+}
@@ -1,23 +1,47 @@
 package com.example.userservice.entity;
 
+import com.example.userservice.repo.ShardAwareIdGenerator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_custom_user_birthday", columnList = "birthday, id"),
+        @Index(name = "idx_custom_user_birthday_month_day", columnList = "birthday_month_day, id"),
+        @Index(name = CustomUser.EMAIL_UNIQUE_INDEX, columnList = "email", unique = true)
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class CustomUser implements UserDetails {
+    public static final String EMAIL_UNIQUE_INDEX = "uk_custom_user_email";
+
+    /** Pooled sequence id; with sharding it also names the shard the row lives on. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "custom_user_seq")
+    @GenericGenerator(name = "custom_user_seq", type = ShardAwareIdGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "custom_user_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM,
+                    value = "" + ShardAwareIdGenerator.INCREMENT)
+    })
     private  Long id;
     private String email;
     private String firstName;
@@ -25,4 +49,40 @@ public class CustomUser implements UserDetails {
     private Date birthday;
     private String address;
     private String phoneNumber;
+    @Version
+    private Long version;
+    /** Birthday as month * 100 + day, so anniversary lookups are an index range scan. */
+    @JsonIgnore
+    private Integer birthdayMonthDay;
+    /** When the row was last written; sent as {@code Last-Modified} rather than in the body. */
+    @JsonIgnore
+    private Date lastModified;
+
+    public CustomUser(Long id, String email, String firstName, String lastName, Date birthday,
+                      String address, String phoneNumber) {
+        this(id, email, firstName, lastName, birthday, address, phoneNumber, null, null, null);
+    }
+
+    public CustomUser(Long id, String email, String firstName, String lastName, Date birthday,
+                      String address, String phoneNumber, Long version) {
+        this(id, email, firstName, lastName, birthday, address, phoneNumber, version, null, null);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateDerivedColumns() {
+        birthdayMonthDay = monthDayOf(birthday);
+        lastModified = new Date();
+    }
+
+    public static Integer monthDayOf(Date birthday) {
+        if (birthday == null) {
+            return null;
+        }
+        return monthDayOf(birthday.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+
+    public static int monthDayOf(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
 }
@@ -8,7 +8,17 @@ public enum UserDataErrors {
     DATE_FUTURE ("Date cannot be in future"),
     DATE_YOUNG_USER ("User cannot be younger than :"),
     DATE_NULL("Date cannot be null"),
-    USER_NULL("User cannot be empty");
+    USER_NULL("User cannot be empty"),
+    PATCH_EMPTY("Patch must contain at least one field"),
+    UNKNOWN_FIELD("Unknown field: "),
+    INSERT_FAILED("User could not be stored: "),
+    EMAIL_TAKEN("Email is already registered: "),
+    TOO_MANY_IDS("Too many ids, at most this many can be looked up at once: "),
+    PAGE_TOO_DEEP("Page is too deep, at most this many rows can be skipped: "),
+    IDEMPOTENCY_KEY("Idempotency-Key must be non-blank and at most this long: "),
+    IDEMPOTENCY_KEY_REUSED("Idempotency-Key was already used for a different request: "),
+    IDEMPOTENCY_IN_PROGRESS("A request with this Idempotency-Key is still in progress: "),
+    VERSION_REQUIRED("Version is required, send the version of the user being replaced");
     private final String title;
 
     UserDataErrors(String title) {
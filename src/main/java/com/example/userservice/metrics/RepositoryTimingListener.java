@@ -0,0 +1,50 @@
+package com.example.userservice.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds every repository call to the database share of the current request and logs calls slower
+ * than {@code users.metrics.slow-query-threshold}.
+ */
+@Component
+public class RepositoryTimingListener implements RepositoryMethodInvocationListener, BeanPostProcessor {
+  private static final Logger log = LoggerFactory.getLogger(RepositoryTimingListener.class);
+  private final long slowQueryThresholdNanos;
+
+  public RepositoryTimingListener(
+      @Value("${users.metrics.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+    this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+  }
+
+  @Override
+  public void afterInvocation(RepositoryMethodInvocation invocation) {
+    long duration = invocation.getDuration(TimeUnit.NANOSECONDS);
+    RequestTimings.record(RequestTimings.Layer.DATABASE, duration);
+    if (duration >= slowQueryThresholdNanos) {
+      log.warn(
+          "Slow repository call {}.{} took {} ms ({})",
+          invocation.getRepositoryInterface().getSimpleName(),
+          invocation.getMethod().getName(),
+          TimeUnit.NANOSECONDS.toMillis(duration),
+          invocation.getResult().getState());
+    }
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+      repositoryFactoryBean.addRepositoryFactoryCustomizer(
+          factory -> factory.addInvocationListener(this));
+    }
+    return bean;
+  }
+}
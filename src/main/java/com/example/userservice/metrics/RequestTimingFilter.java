@@ -0,0 +1,57 @@
+package com.example.userservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the per-layer split of every request as {@code users.request.layer} timers tagged with
+ * the endpoint pattern and layer. Overall latency, counts and errors per endpoint come from
+ * Spring's {@code http.server.requests}.
+ */
+@Component
+public class RequestTimingFilter extends OncePerRequestFilter {
+  static final String METER_NAME = "users.request.layer";
+  private final MeterRegistry meterRegistry;
+
+  public RequestTimingFilter(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return request.getRequestURI().startsWith("/actuator");
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    RequestTimings.begin();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      long[] timings = RequestTimings.end();
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+      for (RequestTimings.Layer layer : RequestTimings.Layer.values()) {
+        Timer.builder(METER_NAME)
+            .description("Time spent per request in each layer")
+            .tag("uri", uri)
+            .tag("layer", layer.name().toLowerCase())
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(meterRegistry)
+            .record(timings[layer.ordinal()], TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
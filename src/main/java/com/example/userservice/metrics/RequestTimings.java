@@ -0,0 +1,36 @@
+package com.example.userservice.metrics;
+
+/**
+ * Per-request accumulator splitting request time into layers. {@link RequestTimingFilter} opens it
+ * for each request; validation, repository calls and JSON writing add their elapsed time on the
+ * request thread. Recording outside a request is a no-op.
+ */
+public final class RequestTimings {
+  public enum Layer {
+    VALIDATION,
+    DATABASE,
+    SERIALIZATION
+  }
+
+  private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+  private RequestTimings() {}
+
+  static void begin() {
+    CURRENT.set(new long[Layer.values().length]);
+  }
+
+  /** Ends the current request and returns nanoseconds spent per layer, indexed by ordinal. */
+  static long[] end() {
+    long[] timings = CURRENT.get();
+    CURRENT.remove();
+    return timings;
+  }
+
+  public static void record(Layer layer, long nanos) {
+    long[] timings = CURRENT.get();
+    if (timings != null) {
+      timings[layer.ordinal()] += nanos;
+    }
+  }
+}
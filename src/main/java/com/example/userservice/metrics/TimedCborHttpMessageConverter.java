@@ -0,0 +1,31 @@
+package com.example.userservice.metrics;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/** {@code application/cbor} counterpart of {@link TimedSmileHttpMessageConverter}. */
+@Component
+public class TimedCborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+  public TimedCborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    super(objectMapperBuilder.factory(new CBORFactory()).build());
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long start = System.nanoTime();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      RequestTimings.record(RequestTimings.Layer.SERIALIZATION, System.nanoTime() - start);
+    }
+  }
+}
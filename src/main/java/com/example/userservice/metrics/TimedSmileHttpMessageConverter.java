@@ -0,0 +1,34 @@
+package com.example.userservice.metrics;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Binary JSON ({@code application/x-jackson-smile}) for clients that ask for it, configured from
+ * the same {@code spring.jackson.*} settings as the JSON converter and timed the same way.
+ */
+@Component
+public class TimedSmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+
+  public TimedSmileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    super(objectMapperBuilder.factory(new SmileFactory()).build());
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long start = System.nanoTime();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      RequestTimings.record(RequestTimings.Layer.SERIALIZATION, System.nanoTime() - start);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.userservice.repo;
+
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Pooled sequence ids that name their shard: a row inserted on shard {@code s} of {@code n} gets
+ * {@code local * n + s}, where {@code local} comes from the sequence of that shard. Each shard
+ * has its own pooled optimizer, so blocks fetched from one shard's sequence are never handed out
+ * on another. With a single shard the ids are exactly those of a plain pooled sequence.
+ */
+public class ShardAwareIdGenerator implements IdentifierGenerator {
+    /** Hibernate setting carrying the number of shards; absent means one. */
+    public static final String SHARD_COUNT_SETTING = "users.sharding.shard-count";
+    /** Block size of the pooled optimizer, as configured on {@code CustomUser}. */
+    public static final int INCREMENT = 50;
+
+    private SequenceStyleGenerator[] shards;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        Object shardCount = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings()
+                .get(SHARD_COUNT_SETTING);
+        int count = shardCount == null ? 1 : Integer.parseInt(shardCount.toString());
+        shards = new SequenceStyleGenerator[count];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new SequenceStyleGenerator();
+            shards[i].configure(type, parameters, serviceRegistry);
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        for (SequenceStyleGenerator shard : shards) {
+            shard.registerExportables(database);
+        }
+    }
+
+    @Override
+    public void initialize(SqlStringGenerationContext context) {
+        for (SequenceStyleGenerator shard : shards) {
+            shard.initialize(context);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        int shard = ShardRouter.currentShard();
+        long local = ((Number) shards[shard].generate(session, object)).longValue();
+        return local * shards.length + shard;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.userservice.repo;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard a piece of repository work runs on. Users are spread over the data sources
+ * in {@code users.sharding.shard-urls} by id: a user lives on shard {@code id % shardCount}, which
+ * the id generator guarantees when the row is inserted. The shard is held per thread and read by
+ * the routing data source when a connection is checked out, so it has to be set before the first
+ * statement of a transaction, and pending inserts have to be flushed before {@link #onShard}
+ * returns: a flush left to commit would check out a connection on the default shard. Without
+ * shard URLs there is a single shard and every call runs inline, as if there were no sharding.
+ */
+@Component
+public class ShardRouter {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final TransactionTemplate readTransaction;
+    private final AtomicInteger nextInsertShard = new AtomicInteger();
+    private final ExecutorService queryPool;
+
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${users.sharding.shard-urls:}") List<String> shardUrls,
+                       @Value("${users.sharding.query-threads:16}") int queryThreads) {
+        this.shardCount = Math.max(1, shardUrls.size());
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.queryPool = shardCount > 1
+                ? Executors.newFixedThreadPool(Math.max(shardCount, queryThreads), runnable -> {
+                    Thread thread = new Thread(runnable, "user-shard-query");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (queryPool != null) {
+            queryPool.shutdownNow();
+        }
+    }
+
+    /** Shard that connections checked out by the current thread go to. */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shardCount);
+    }
+
+    /** Shard for the next batch of new users, round robin. */
+    public int nextInsertShard() {
+        return Math.floorMod(nextInsertShard.getAndIncrement(), shardCount);
+    }
+
+    /** Runs {@code work} with connections routed to {@code shard}, then restores the previous shard. */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void onShard(int shard, Runnable work) {
+        onShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** Runs {@code work} once per shard, one shard after another. */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            onShard(shard, () -> work.accept(current));
+        }
+    }
+
+    /** Runs {@code work} on each shard in turn, each time in a read-only transaction. */
+    public void readEachShard(Runnable work) {
+        forEachShard(shard -> readTransaction.executeWithoutResult(status -> work.run()));
+    }
+
+    /**
+     * Runs {@code query} on every shard, each in a read-only transaction, and returns the results
+     * in shard order. With several shards the queries run in parallel; with one it runs inline and
+     * joins the caller's transaction.
+     */
+    public <T> List<T> queryEveryShard(Supplier<T> query) {
+        if (queryPool == null) {
+            return Collections.singletonList(
+                    onShard(0, () -> readTransaction.execute(status -> query.get())));
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(queryPool.submit(
+                    () -> onShard(current, () -> readTransaction.execute(status -> query.get()))));
+        }
+        return collect(futures);
+    }
+
+    /**
+     * Runs {@code query} once per shard that owns some of {@code ids}, passing only its own ids.
+     * With several shards every group gets its own transaction on a worker thread, so a caller's
+     * transaction is never bound to one shard and then reused for another.
+     */
+    public <T> List<T> queryByIds(Collection<Long> ids, Function<List<Long>, List<T>> query) {
+        Map<Integer, List<Long>> idsByShard = groupByShard(ids);
+        if (queryPool == null) {
+            List<Long> allIds = idsByShard.isEmpty() ? List.of() : idsByShard.get(0);
+            return onShard(0, () -> readTransaction.execute(status -> query.apply(allIds)));
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(idsByShard.size());
+        idsByShard.forEach((shard, shardIds) -> futures.add(queryPool.submit(
+                () -> onShard(shard, () -> readTransaction.execute(status -> query.apply(shardIds))))));
+        List<T> rows = new ArrayList<>(ids.size());
+        collect(futures).forEach(rows::addAll);
+        return rows;
+    }
+
+    public Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return idsByShard;
+    }
+
+    /**
+     * Merges lists that are each sorted by {@code order} into one sorted list, skipping the first
+     * {@code offset} elements and returning at most {@code limit}.
+     */
+    public static <T> List<T> merge(List<? extends List<T>> sortedLists, Comparator<? super T> order,
+                                    int offset, int limit) {
+        PriorityQueue<Cursor<T>> heads =
+                new PriorityQueue<>((a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> list : sortedLists) {
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        int skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(cursor.head());
+            }
+            if (cursor.position() + 1 < cursor.list().size()) {
+                heads.add(new Cursor<>(cursor.list(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    private static <T> List<T> collect(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private record Cursor<T>(List<T> list, int position) {
+        T head() {
+            return list.get(position);
+        }
+    }
+}
@@ -1,12 +1,86 @@
 package com.example.userservice.repo;
 
+import com.example.userservice.dto.UserVersionDTO;
 import com.example.userservice.entity.CustomUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<CustomUser,Long> {
-    List<CustomUser> findByBirthdayBetween(Date fromDate, Date toDate);
+public interface UserRepository extends JpaRepository<CustomUser,Long>, UserRepositoryCustom {
+    int EXPORT_FETCH_SIZE = 500;
+
+    List<CustomUser> findByBirthdayBetween(Date fromDate, Date toDate, Pageable pageable);
+
+    long countByBirthdayMonthDayBetween(int fromMonthDay, int toMonthDay);
+
+    List<CustomUser> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByEmailAndIdNot(String email, Long id);
+
+    Optional<CustomUser> findByEmail(String email);
+
+    @Query("select u.email from CustomUser u where u.email in :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    @Query("select u.email from CustomUser u where u.email is not null")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    Stream<String> streamAllEmails();
+
+    @Query("select new com.example.userservice.dto.UserVersionDTO(u.id, u.version, u.lastModified) "
+            + "from CustomUser u where u.id = :id")
+    Optional<UserVersionDTO> findVersionById(@Param("id") Long id);
+
+    @Query("select new com.example.userservice.dto.UserVersionDTO(u.id, u.version, u.lastModified) "
+            + "from CustomUser u where u.birthday between :fromDate and :toDate")
+    List<UserVersionDTO> findVersionsByBirthdayBetween(@Param("fromDate") Date fromDate,
+                                                      @Param("toDate") Date toDate,
+                                                      Pageable pageable);
+
+    @Query("select new com.example.userservice.dto.UserVersionDTO(u.id, u.version, u.lastModified) "
+            + "from CustomUser u where u.id in :ids")
+    List<UserVersionDTO> findVersionsByIdIn(@Param("ids") List<Long> ids);
+
+    @Query("select u from CustomUser u order by u.id")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<CustomUser> streamAllByOrderById();
+
+    @Query("select u.id, u.birthday from CustomUser u where u.birthday is not null order by u.birthday, u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    Stream<Object[]> streamIdAndBirthday();
+
+    /**
+     * Overwrites the user row and bumps its version in a single statement. When the user carries a
+     * version, the row is only updated if it still has that version.
+     */
+    @Modifying
+    @Query("update CustomUser u set u.email = :#{#user.email}, u.firstName = :#{#user.firstName}, "
+            + "u.lastName = :#{#user.lastName}, u.birthday = :#{#user.birthday}, "
+            + "u.address = :#{#user.address}, u.phoneNumber = :#{#user.phoneNumber}, "
+            + "u.birthdayMonthDay = :#{T(com.example.userservice.entity.CustomUser).monthDayOf(#user.birthday)}, "
+            + "u.version = u.version + 1, u.lastModified = current_timestamp "
+            + "where u.id = :#{#user.id} "
+            + "and (:#{#user.version} is null or u.version = :#{#user.version})")
+    int updateUser(@Param("user") CustomUser user);
+
+    @Modifying
+    @Query("delete from CustomUser u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
 }
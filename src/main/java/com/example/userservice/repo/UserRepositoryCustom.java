@@ -0,0 +1,42 @@
+package com.example.userservice.repo;
+
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.CustomUser;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+    /** Properties of {@link CustomUser} that list endpoints can select with {@code ?fields=}. */
+    Set<String> PROJECTABLE_FIELDS = Set.of(
+            "id", "email", "firstName", "lastName", "birthday", "address", "phoneNumber", "version");
+
+    /**
+     * Updates only the columns present in {@code patch} and bumps the version, in a single
+     * statement. When the patch carries a version, the row is only updated if it still has that
+     * version.
+     */
+    int patchUser(Long id, UserPatchDTO patch);
+
+    /**
+     * Users whose birthday month/day lies in {@code [fromMonthDay, toMonthDay]}, ordered by
+     * month/day and id. Takes a plain row offset so callers can page across several ranges.
+     */
+    List<CustomUser> findByBirthdayMonthDayBetween(int fromMonthDay, int toMonthDay, int offset, int limit);
+
+    /**
+     * Up to {@code limit} users with an id greater than {@code after}, ordered by id, as rows that
+     * hold only the selected {@code fields}. Every row also carries {@code id}. Rows are read as
+     * tuples, so no entities are loaded into the persistence context.
+     */
+    List<Map<String, Object>> findFieldsByIdGreaterThan(Set<String> fields, long after, int limit);
+
+    /** Projected counterpart of {@code findByBirthdayBetween}, ordered by birthday and id. */
+    List<Map<String, Object>> findFieldsByBirthdayBetween(Set<String> fields, Date fromDate, Date toDate,
+                                                          int offset, int limit);
+
+    /** Projected rows for the given ids, in no particular order. */
+    List<Map<String, Object>> findFieldsByIdIn(Set<String> fields, List<Long> ids);
+}
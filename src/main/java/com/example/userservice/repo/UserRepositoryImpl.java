@@ -0,0 +1,136 @@
+package com.example.userservice.repo;
+
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.CustomUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchUser(Long id, UserPatchDTO patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<CustomUser> update = cb.createCriteriaUpdate(CustomUser.class);
+        Root<CustomUser> root = update.from(CustomUser.class);
+        setIfPresent(update, root, patch, UserPatchDTO.EMAIL, String.class, patch.getEmail());
+        setIfPresent(update, root, patch, UserPatchDTO.FIRST_NAME, String.class, patch.getFirstName());
+        setIfPresent(update, root, patch, UserPatchDTO.LAST_NAME, String.class, patch.getLastName());
+        setIfPresent(update, root, patch, UserPatchDTO.BIRTHDAY, Date.class, patch.getBirthday());
+        if (patch.isPresent(UserPatchDTO.BIRTHDAY)) {
+            update.set(root.<Integer>get("birthdayMonthDay"), CustomUser.monthDayOf(patch.getBirthday()));
+        }
+        setIfPresent(update, root, patch, UserPatchDTO.ADDRESS, String.class, patch.getAddress());
+        setIfPresent(update, root, patch, UserPatchDTO.PHONE_NUMBER, String.class, patch.getPhoneNumber());
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.set(root.<Date>get("lastModified"), cb.currentTimestamp());
+
+        Predicate where = cb.equal(root.get("id"), id);
+        if (patch.getVersion() != null) {
+            where = cb.and(where, cb.equal(root.get("version"), patch.getVersion()));
+        }
+        update.where(where);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<CustomUser> findByBirthdayMonthDayBetween(int fromMonthDay, int toMonthDay, int offset,
+                                                          int limit) {
+        return entityManager.createQuery(
+                        "select u from CustomUser u where u.birthdayMonthDay between :from and :to "
+                                + "order by u.birthdayMonthDay, u.id", CustomUser.class)
+                .setParameter("from", fromMonthDay)
+                .setParameter("to", toMonthDay)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIdGreaterThan(Set<String> fields, long after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<CustomUser> root = query.from(CustomUser.class);
+        query.multiselect(selections(root, fields))
+                .where(cb.greaterThan(root.<Long>get("id"), after))
+                .orderBy(cb.asc(root.get("id")));
+        return toRows(entityManager.createQuery(query).setMaxResults(limit).getResultList(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByBirthdayBetween(Set<String> fields, Date fromDate, Date toDate,
+                                                                 int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<CustomUser> root = query.from(CustomUser.class);
+        query.multiselect(selections(root, fields))
+                .where(cb.between(root.<Date>get("birthday"), fromDate, toDate))
+                .orderBy(cb.asc(root.get("birthday")), cb.asc(root.get("id")));
+        return toRows(entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIdIn(Set<String> fields, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+        Root<CustomUser> root = query.from(CustomUser.class);
+        query.multiselect(selections(root, fields)).where(root.get("id").in(ids));
+        return toRows(entityManager.createQuery(query).getResultList(), fields);
+    }
+
+    private static List<Selection<?>> selections(Root<CustomUser> root, Set<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        selections.add(root.get("id").alias("id"));
+        for (String field : fields) {
+            if (!field.equals("id")) {
+                selections.add(root.get(field).alias(field));
+            }
+        }
+        return selections;
+    }
+
+    private static List<Map<String, Object>> toRows(List<Tuple> tuples, Set<String> fields) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+            row.put("id", tuple.get("id"));
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private <T> void setIfPresent(CriteriaUpdate<CustomUser> update, Root<CustomUser> root,
+                                  UserPatchDTO patch, String field, Class<T> type, T value) {
+        if (!patch.isPresent(field)) {
+            return;
+        }
+        if (value == null) {
+            update.set(root.<T>get(field), entityManager.getCriteriaBuilder().nullLiteral(type));
+        } else {
+            update.set(root.<T>get(field), value);
+        }
+    }
+}
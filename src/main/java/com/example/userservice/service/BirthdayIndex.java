@@ -0,0 +1,280 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-process secondary index of user birthdays. Entries are kept as two parallel
+ * primitive arrays sorted by (epoch day, id), about 12 bytes per user, so a range lookup is two
+ * binary searches and a slice. Writes shift the arrays and are O(n); the index is meant for
+ * read-heavy deployments.
+ */
+@Component
+public class BirthdayIndex {
+  private final UserRepository userRepository;
+  private final ShardRouter shardRouter;
+  private final boolean enabled;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private int[] epochDays = new int[0];
+  private long[] ids = new long[0];
+  private int size;
+  private volatile boolean ready;
+  /** Writes seen while a rebuild streams rows; replayed onto the loaded arrays. Write-locked. */
+  private List<Change> changesDuringRebuild;
+
+  public BirthdayIndex(
+      UserRepository userRepository,
+      ShardRouter shardRouter,
+      @Value("${users.birthday-index.enabled:false}") boolean enabled) {
+    this.userRepository = userRepository;
+    this.shardRouter = shardRouter;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Loads the index from the database, streaming (id, birthday) pairs in index order. Shards are
+   * read one after another, so with several shards the pairs are sorted once at the end. Puts and
+   * removes that arrive while rows are streamed are recorded and applied again on top of the
+   * loaded content, so none of them is lost when the arrays are swapped.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      changesDuringRebuild = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    try {
+      load(loadAll());
+    } finally {
+      lock.writeLock().lock();
+      try {
+        changesDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private Loader loadAll() {
+    Loader loader = new Loader();
+    shardRouter.readEachShard(
+        () -> {
+          try (Stream<Object[]> rows = userRepository.streamIdAndBirthday()) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+              Object[] row = iterator.next();
+              loader.add(toEpochDay((Date) row[1]), (Long) row[0]);
+            }
+          }
+        });
+    if (shardRouter.isSharded()) {
+      loader.sort();
+    }
+    return loader;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** True once the index has been loaded and can answer queries. */
+  public boolean isReady() {
+    return enabled && ready;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the content; the arrays must already be sorted by (epoch day, id). Changes recorded
+   * by a running rebuild are applied on top.
+   */
+  public void load(int[] sortedEpochDays, long[] sortedIds, int count) {
+    lock.writeLock().lock();
+    try {
+      epochDays = sortedEpochDays;
+      ids = sortedIds;
+      size = count;
+      if (changesDuringRebuild != null) {
+        for (Change change : changesDuringRebuild) {
+          apply(change.id(), change.epochDay());
+        }
+        changesDuringRebuild.clear();
+      }
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load(Loader loader) {
+    load(loader.epochDays, loader.ids, loader.count);
+  }
+
+  public void put(long id, Date birthday) {
+    if (!enabled) {
+      return;
+    }
+    Integer epochDay = birthday == null ? null : toEpochDay(birthday);
+    lock.writeLock().lock();
+    try {
+      record(id, epochDay);
+      apply(id, epochDay);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    if (!enabled) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      record(id, null);
+      removeEntry(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of users born between {@code fromDate} and {@code toDate} inclusive, in (birthday, id)
+   * order, skipping {@code offset} entries and returning at most {@code limit}.
+   */
+  public long[] findIds(Date fromDate, Date toDate, long offset, int limit) {
+    int fromDay = toEpochDay(fromDate);
+    int toDay = toEpochDay(toDate);
+    lock.readLock().lock();
+    try {
+      int last = lowerBound(toDay, Long.MAX_VALUE);
+      int start = (int) Math.min(lowerBound(fromDay, Long.MIN_VALUE) + Math.max(0, offset), last);
+      int end = (int) Math.min(last, (long) start + Math.max(0, limit));
+      return start < end ? Arrays.copyOfRange(ids, start, end) : new long[0];
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public static int toEpochDay(Date date) {
+    return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+  }
+
+  private void record(long id, Integer epochDay) {
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.add(new Change(id, epochDay));
+    }
+  }
+
+  /** Moves {@code id} to {@code epochDay}, or drops it when the birthday is {@code null}. */
+  private void apply(long id, Integer epochDay) {
+    removeEntry(id);
+    if (epochDay != null) {
+      insertEntry(epochDay, id);
+    }
+  }
+
+  /** First position whose (epoch day, id) is not less than the given key. */
+  private int lowerBound(int epochDay, long id) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (epochDays[mid] < epochDay || (epochDays[mid] == epochDay && ids[mid] < id)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void insertEntry(int epochDay, long id) {
+    if (size == ids.length) {
+      int capacity = Math.max(16, size + (size >> 1));
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      ids = Arrays.copyOf(ids, capacity);
+    }
+    int position = lowerBound(epochDay, id);
+    System.arraycopy(epochDays, position, epochDays, position + 1, size - position);
+    System.arraycopy(ids, position, ids, position + 1, size - position);
+    epochDays[position] = epochDay;
+    ids[position] = id;
+    size++;
+  }
+
+  private void removeEntry(long id) {
+    for (int i = 0; i < size; i++) {
+      if (ids[i] == id) {
+        System.arraycopy(epochDays, i + 1, epochDays, i, size - i - 1);
+        System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+        size--;
+        return;
+      }
+    }
+  }
+
+  private record Change(long id, Integer epochDay) {}
+
+  /** Growable pair of arrays filled during a rebuild. */
+  private static final class Loader {
+    private int[] epochDays = new int[1024];
+    private long[] ids = new long[1024];
+    private int count;
+
+    void add(int epochDay, long id) {
+      if (count == ids.length) {
+        epochDays = Arrays.copyOf(epochDays, count * 2);
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      epochDays[count] = epochDay;
+      ids[count] = id;
+      count++;
+    }
+
+    void sort() {
+      int[] order =
+          IntStream.range(0, count)
+              .boxed()
+              .sorted(
+                  Comparator.<Integer>comparingInt(i -> epochDays[i])
+                      .thenComparingLong(i -> ids[i]))
+              .mapToInt(Integer::intValue)
+              .toArray();
+      int[] sortedEpochDays = new int[Math.max(count, 1)];
+      long[] sortedIds = new long[Math.max(count, 1)];
+      for (int i = 0; i < count; i++) {
+        sortedEpochDays[i] = epochDays[order[i]];
+        sortedIds[i] = ids[order[i]];
+      }
+      epochDays = sortedEpochDays;
+      ids = sortedIds;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.example.userservice.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: comma separated, optionally double-quoted fields, {@code ""} for a
+ * quote inside a quoted field, and quoted fields may span lines. Only one record is held at a
+ * time, and {@link #recordLine()} gives the line the last record started on.
+ */
+public class CsvRecordReader {
+  private final Reader reader;
+  private final char[] buffer = new char[64 * 1024];
+  private int position;
+  private int limit;
+  private long line = 1;
+  private long recordLine;
+
+  public CsvRecordReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /** Fields of the next record, or {@code null} at the end of the input. */
+  public List<String> next() throws IOException {
+    if (peek() == -1) {
+      return null;
+    }
+    recordLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        fields.add(field.toString());
+        return fields;
+      }
+      if (quoted) {
+        if (c == '"') {
+          if (peek() == '"') {
+            read();
+            field.append('"');
+          } else {
+            quoted = false;
+          }
+        } else {
+          if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' || c == '\n') {
+        if (c == '\r' && peek() == '\n') {
+          read();
+        }
+        line++;
+        fields.add(field.toString());
+        return fields;
+      } else {
+        field.append((char) c);
+      }
+    }
+  }
+
+  /** 1-based line number on which the record last returned by {@link #next()} started. */
+  public long recordLine() {
+    return recordLine;
+  }
+
+  private int read() throws IOException {
+    int c = peek();
+    if (c != -1) {
+      position++;
+    }
+    return c;
+  }
+
+  private int peek() throws IOException {
+    if (position == limit) {
+      limit = reader.read(buffer, 0, buffer.length);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[position];
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every stored email, so creating a user with a new email can skip the
+ * duplicate lookup. {@link #mightContain} never misses a stored email; a {@code true} only means
+ * the database has to be asked. Bits are never cleared, so emails of deleted or renamed users keep
+ * answering {@code true} until the next restart. Until the startup load has finished every email
+ * is reported as possibly present.
+ */
+@Component
+public class EmailBloomFilter {
+  private final UserRepository userRepository;
+  private final ShardRouter shardRouter;
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+  private volatile boolean ready;
+
+  public EmailBloomFilter(
+      UserRepository userRepository,
+      ShardRouter shardRouter,
+      @Value("${users.email-filter.expected-insertions:1000000}") long expectedInsertions,
+      @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+    this.userRepository = userRepository;
+    this.shardRouter = shardRouter;
+    long optimalBits =
+        (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+    this.bitCount = bits.length() * 64L;
+    this.hashCount =
+        Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    shardRouter.readEachShard(
+        () -> {
+          try (Stream<String> emails = userRepository.streamAllEmails()) {
+            emails.forEach(this::put);
+          }
+        });
+    ready = true;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  public void put(String email) {
+    if (email == null) {
+      return;
+    }
+    long hash = hash(email);
+    long step = mix(hash);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash + i * step, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current;
+      do {
+        current = bits.get(word);
+      } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+    }
+  }
+
+  public boolean mightContain(String email) {
+    if (!ready) {
+      return true;
+    }
+    if (email == null) {
+      return false;
+    }
+    long hash = hash(email);
+    long step = mix(hash);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash + i * step, bitCount);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** 64-bit FNV-1a over the UTF-16 chars. */
+  private static long hash(String email) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < email.length(); i++) {
+      hash ^= email.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /** MurmurHash3 finalizer; gives the second, independent hash for double hashing. */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash | 1;
+  }
+}
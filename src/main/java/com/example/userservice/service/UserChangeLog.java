@@ -0,0 +1,87 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserChangeEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The most recent {@code users.changes.capacity} user changes, numbered from 1 in commit order and
+ * kept in a ring buffer. Sequences restart with the application, so the ids handed to clients
+ * ({@link #eventId}) also carry the boot epoch. A reader that asks for events the buffer has
+ * already overwritten, or whose id comes from before a restart, gets {@code null} and has to
+ * start again from a snapshot.
+ */
+@Component
+public class UserChangeLog {
+  /** Position that always reads as a gap, for ids of another run or ids that do not parse. */
+  public static final long UNKNOWN = -1;
+
+  private final UserChangeEventDTO[] events;
+  private final long epoch = System.currentTimeMillis();
+  private long lastSequence;
+
+  public UserChangeLog(@Value("${users.changes.capacity:10000}") int capacity) {
+    this.events = new UserChangeEventDTO[capacity];
+  }
+
+  /** Client-facing id of {@code sequence}: {@code <epoch>-<sequence>}. */
+  public String eventId(long sequence) {
+    return epoch + "-" + sequence;
+  }
+
+  /** Sequence named by an {@link #eventId} of this run, otherwise {@link #UNKNOWN}. */
+  public long sequenceOf(String eventId) {
+    int separator = eventId.indexOf('-');
+    if (separator < 0 || !eventId.substring(0, separator).equals(String.valueOf(epoch))) {
+      return UNKNOWN;
+    }
+    try {
+      return Long.parseLong(eventId.substring(separator + 1));
+    } catch (NumberFormatException e) {
+      return UNKNOWN;
+    }
+  }
+
+  public synchronized UserChangeEventDTO publish(UserChangeEventDTO.Type type, Long userId) {
+    UserChangeEventDTO event = new UserChangeEventDTO(++lastSequence, type, userId, new Date());
+    events[(int) (event.getSequence() % events.length)] = event;
+    notifyAll();
+    return event;
+  }
+
+  public synchronized long lastSequence() {
+    return lastSequence;
+  }
+
+  /**
+   * Up to {@code max} events with a sequence greater than {@code after}, oldest first, or {@code
+   * null} when some of them are no longer in the buffer.
+   */
+  public synchronized List<UserChangeEventDTO> readAfter(long after, int max) {
+    long oldest = Math.max(1, lastSequence - events.length + 1);
+    if (after < oldest - 1 || after > lastSequence) {
+      return null;
+    }
+    int count = (int) Math.min(max, lastSequence - after);
+    List<UserChangeEventDTO> result = new ArrayList<>(count);
+    for (long sequence = after + 1; sequence <= after + count; sequence++) {
+      result.add(events[(int) (sequence % events.length)]);
+    }
+    return result;
+  }
+
+  /** Blocks until an event newer than {@code after} arrives, {@link #wakeUp()} or the timeout. */
+  public synchronized void awaitAfter(long after, long timeoutMillis) throws InterruptedException {
+    if (lastSequence <= after) {
+      wait(timeoutMillis);
+    }
+  }
+
+  public synchronized void wakeUp() {
+    notifyAll();
+  }
+}
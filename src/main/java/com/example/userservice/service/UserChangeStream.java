@@ -0,0 +1,207 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserChangeEventDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes {@link UserChangeLog} events to Server-Sent Events subscribers. One dispatcher thread
+ * watches the log and hands each subscriber with something to send to a sender thread; a
+ * subscriber has at most one send in flight and reads the log at its own pace, so a slow client
+ * only delays itself and, once it falls out of the buffer, gets the reset below. A send that
+ * blocks for longer than {@code users.changes.write-timeout} drops the subscriber. Each event goes
+ * out as {@code user} with {@link UserChangeLog#eventId} as the SSE id, so a reconnecting client
+ * resumes through {@code Last-Event-ID}. A subscriber whose position has left the buffer, or
+ * whose id comes from before a restart, gets a {@code reset} event instead: it should reload
+ * {@code GET /users} and keeps receiving changes from the id in that event. Idle connections get
+ * a comment every {@code users.changes.heartbeat}.
+ */
+@Component
+public class UserChangeStream {
+  private static final int SEND_BATCH = 256;
+
+  private final UserChangeLog changeLog;
+  private final long timeoutMillis;
+  private final long heartbeatMillis;
+  private final long writeTimeoutMillis;
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final ExecutorService senders =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "user-change-sender");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private Thread dispatcher;
+  private volatile boolean running;
+
+  public UserChangeStream(
+      UserChangeLog changeLog,
+      @Value("${users.changes.stream-timeout:30m}") Duration timeout,
+      @Value("${users.changes.heartbeat:15s}") Duration heartbeat,
+      @Value("${users.changes.write-timeout:10s}") Duration writeTimeout) {
+    this.changeLog = changeLog;
+    this.timeoutMillis = timeout.toMillis();
+    this.heartbeatMillis = heartbeat.toMillis();
+    this.writeTimeoutMillis = writeTimeout.toMillis();
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    dispatcher = new Thread(this::dispatch, "user-change-stream");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    dispatcher.interrupt();
+    dispatcher.join(heartbeatMillis);
+    senders.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+  }
+
+  /**
+   * Streams changes after the event id {@code after}, or only new changes when it is {@code null}.
+   */
+  public SseEmitter subscribe(String after) {
+    SseEmitter emitter = createEmitter(timeoutMillis);
+    Subscriber subscriber =
+        new Subscriber(
+            emitter, after != null ? changeLog.sequenceOf(after) : changeLog.lastSequence());
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(error -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    changeLog.wakeUp();
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  /** The emitter handed to a new subscriber. */
+  protected SseEmitter createEmitter(long timeoutMillis) {
+    return new SseEmitter(timeoutMillis);
+  }
+
+  private void dispatch() {
+    while (running) {
+      long sequence = changeLog.lastSequence();
+      long now = System.currentTimeMillis();
+      for (Subscriber subscriber : subscribers) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+          subscriber.sendStarted = now;
+          try {
+            senders.execute(() -> deliver(subscriber));
+          } catch (RejectedExecutionException e) {
+            return;
+          }
+        } else if (now - subscriber.sendStarted > writeTimeoutMillis) {
+          drop(subscriber, new IOException("No write progress for " + writeTimeoutMillis + " ms"));
+        }
+      }
+      try {
+        changeLog.awaitAfter(sequence, Math.min(heartbeatMillis, writeTimeoutMillis));
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Sends until the subscriber has caught up. An event published after the last read but before
+   * the subscriber is released is picked up by the check at the end, not left to the next wake-up.
+   */
+  private void deliver(Subscriber subscriber) {
+    do {
+      subscriber.sendStarted = System.currentTimeMillis();
+      try {
+        send(subscriber);
+      } catch (IOException | IllegalStateException e) {
+        drop(subscriber, e);
+        return;
+      } finally {
+        subscriber.sending.set(false);
+      }
+    } while (subscriber.lastSequence < changeLog.lastSequence()
+        && subscriber.sending.compareAndSet(false, true));
+  }
+
+  private void drop(Subscriber subscriber, Exception cause) {
+    if (subscribers.remove(subscriber)) {
+      subscriber.emitter.completeWithError(cause);
+    }
+  }
+
+  private void send(Subscriber subscriber) throws IOException {
+    boolean sent = false;
+    while (true) {
+      List<UserChangeEventDTO> events = changeLog.readAfter(subscriber.lastSequence, SEND_BATCH);
+      if (events == null) {
+        long resumeFrom = changeLog.lastSequence();
+        subscriber.emitter.send(
+            SseEmitter.event()
+                .name("reset")
+                .id(changeLog.eventId(resumeFrom))
+                .data(
+                    Map.of(
+                        "snapshot", "/users",
+                        "sequence", resumeFrom,
+                        "id", changeLog.eventId(resumeFrom))));
+        subscriber.lastSequence = resumeFrom;
+        sent = true;
+        continue;
+      }
+      if (events.isEmpty()) {
+        break;
+      }
+      for (UserChangeEventDTO event : events) {
+        subscriber.emitter.send(
+            SseEmitter.event()
+                .name("user")
+                .id(changeLog.eventId(event.getSequence()))
+                .data(event));
+        subscriber.lastSequence = event.getSequence();
+      }
+      sent = true;
+    }
+    long now = System.currentTimeMillis();
+    if (sent) {
+      subscriber.lastWrite = now;
+    } else if (now - subscriber.lastWrite >= heartbeatMillis) {
+      subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+      subscriber.lastWrite = now;
+    }
+  }
+
+  /** Only the sender holding {@code sending} touches the sequence and write time. */
+  private static class Subscriber {
+    private final SseEmitter emitter;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private volatile long sendStarted;
+    private long lastSequence;
+    private long lastWrite = System.currentTimeMillis();
+
+    Subscriber(SseEmitter emitter, long lastSequence) {
+      this.emitter = emitter;
+      this.lastSequence = lastSequence;
+    }
+  }
+}
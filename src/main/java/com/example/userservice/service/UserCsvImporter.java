@@ -0,0 +1,224 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.ImportSummaryDTO;
+import com.example.userservice.dto.RejectedRowDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.entity.UserDataErrors;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Imports users from CSV with a header row naming the {@link UserDTO} properties ({@code email,
+ * firstName, lastName, birthday, address, phoneNumber}; birthdays as {@code yyyy-MM-dd}). The
+ * input is read once, a chunk of rows at a time. Each chunk is validated with the {@code
+ * dataCorrectnessCheck} rules, rows with an already registered email are rejected, and the rest
+ * are stored with one {@link UserService#createAll} call on a pool of {@code
+ * users.import.parallelism} workers, so parsing, validation and inserts of different chunks
+ * overlap. At most two chunks per worker are in flight, and results are reported in file order.
+ * A chunk whose insert fails is retried row by row, so only the rows that fail are rejected.
+ */
+@Component
+public class UserCsvImporter {
+  private static final Logger log = LoggerFactory.getLogger(UserCsvImporter.class);
+  private static final String[] COLUMNS = {
+    "email", "firstName", "lastName", "birthday", "address", "phoneNumber"
+  };
+
+  private final UserService userService;
+  private final int chunkSize;
+  private final int maxInFlight;
+  private final ExecutorService workers;
+
+  public UserCsvImporter(
+      UserService userService,
+      @Value("${users.import.chunk-size:1000}") int chunkSize,
+      @Value("${users.import.parallelism:0}") int parallelism) {
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.userService = userService;
+    this.chunkSize = chunkSize;
+    this.maxInFlight = threads * 2;
+    this.workers =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              Thread thread = new Thread(runnable, "user-csv-import");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /** Imports every row of {@code csv}, passing each rejected row to {@code rejectedRows}. */
+  public ImportSummaryDTO importCsv(Reader csv, Consumer<RejectedRowDTO> rejectedRows)
+      throws IOException {
+    ImportSummaryDTO summary = new ImportSummaryDTO();
+    CsvRecordReader reader = new CsvRecordReader(csv);
+    List<String> header = reader.next();
+    if (header == null) {
+      return summary;
+    }
+    int[] columns = new int[COLUMNS.length];
+    for (int i = 0; i < COLUMNS.length; i++) {
+      columns[i] = header.indexOf(COLUMNS[i]);
+    }
+    Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+    try {
+      List<Row> chunk = new ArrayList<>(chunkSize);
+      List<String> record;
+      while ((record = reader.next()) != null) {
+        if (record.size() == 1 && record.get(0).isBlank()) {
+          continue;
+        }
+        chunk.add(new Row(reader.recordLine(), record));
+        if (chunk.size() == chunkSize) {
+          List<Row> rows = chunk;
+          inFlight.add(workers.submit(() -> importChunk(rows, columns)));
+          chunk = new ArrayList<>(chunkSize);
+          if (inFlight.size() >= maxInFlight) {
+            report(inFlight.poll(), summary, rejectedRows);
+          }
+        }
+      }
+      if (!chunk.isEmpty()) {
+        List<Row> rows = chunk;
+        inFlight.add(workers.submit(() -> importChunk(rows, columns)));
+      }
+      while (!inFlight.isEmpty()) {
+        report(inFlight.poll(), summary, rejectedRows);
+      }
+    } finally {
+      inFlight.forEach(future -> future.cancel(true));
+    }
+    return summary;
+  }
+
+  private static void report(
+      Future<ChunkResult> future, ImportSummaryDTO summary, Consumer<RejectedRowDTO> rejectedRows)
+      throws IOException {
+    ChunkResult result;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("CSV import interrupted");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("CSV import failed", e.getCause());
+    }
+    summary.setImported(summary.getImported() + result.imported());
+    summary.setRejected(summary.getRejected() + result.rejected().size());
+    result.rejected().forEach(rejectedRows);
+  }
+
+  private ChunkResult importChunk(List<Row> rows, int[] columns) {
+    List<UserDTO> valid = new ArrayList<>(rows.size());
+    List<Long> validLines = new ArrayList<>(rows.size());
+    List<RejectedRowDTO> rejected = new ArrayList<>();
+    for (Row row : rows) {
+      UserDTO userDTO = new UserDTO();
+      userDTO.setEmail(field(row, columns[0]));
+      userDTO.setFirstName(field(row, columns[1]));
+      userDTO.setLastName(field(row, columns[2]));
+      userDTO.setAddress(field(row, columns[4]));
+      userDTO.setPhoneNumber(field(row, columns[5]));
+      String birthday = field(row, columns[3]);
+      if (birthday != null && !birthday.isEmpty()) {
+        try {
+          LocalDate date = LocalDate.parse(birthday);
+          userDTO.setBirthday(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        } catch (DateTimeParseException e) {
+          rejected.add(
+              new RejectedRowDTO(row.line(), List.of(UserDataErrors.DATE_FORMAT.getTitle())));
+          continue;
+        }
+      }
+      ErrorResponseDTO errorResponseDTO = userService.dataCorrectnessCheck(userDTO);
+      if (errorResponseDTO.isErrorsPresent()) {
+        rejected.add(new RejectedRowDTO(row.line(), errorResponseDTO.getErrorMessages()));
+      } else {
+        valid.add(userDTO);
+        validLines.add(row.line());
+      }
+    }
+    Set<Integer> duplicates = valid.isEmpty() ? Set.of() : userService.findDuplicateEmails(valid);
+    if (!duplicates.isEmpty()) {
+      List<UserDTO> unique = new ArrayList<>(valid.size());
+      List<Long> uniqueLines = new ArrayList<>(valid.size());
+      for (int i = 0; i < valid.size(); i++) {
+        if (duplicates.contains(i)) {
+          String error = UserDataErrors.EMAIL_TAKEN.getTitle() + valid.get(i).getEmail();
+          rejected.add(new RejectedRowDTO(validLines.get(i), List.of(error)));
+        } else {
+          unique.add(valid.get(i));
+          uniqueLines.add(validLines.get(i));
+        }
+      }
+      rejected.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+      valid = unique;
+      validLines = uniqueLines;
+    }
+    if (valid.isEmpty()) {
+      return new ChunkResult(0, rejected);
+    }
+    try {
+      userService.createAll(valid);
+    } catch (RuntimeException e) {
+      log.warn("Chunk of {} imported users failed, retrying one by one", valid.size(), e);
+      return importOneByOne(valid, validLines, rejected);
+    }
+    return new ChunkResult(valid.size(), rejected);
+  }
+
+  /**
+   * Stores each row in its own transaction after the chunk insert failed, e.g. because a parallel
+   * chunk took one of its emails after the duplicate check, so only the failing rows are rejected.
+   */
+  private ChunkResult importOneByOne(
+      List<UserDTO> valid, List<Long> validLines, List<RejectedRowDTO> rejected) {
+    int imported = 0;
+    for (int i = 0; i < valid.size(); i++) {
+      try {
+        userService.create(valid.get(i));
+        imported++;
+      } catch (RuntimeException e) {
+        List<String> errors = List.of(UserDataErrors.INSERT_FAILED.getTitle() + e.getMessage());
+        rejected.add(new RejectedRowDTO(validLines.get(i), errors));
+      }
+    }
+    rejected.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+    return new ChunkResult(imported, rejected);
+  }
+
+  private static String field(Row row, int column) {
+    return column >= 0 && column < row.fields().size() ? row.fields().get(column) : null;
+  }
+
+  private record Row(long line, List<String> fields) {}
+
+  private record ChunkResult(int imported, List<RejectedRowDTO> rejected) {}
+}
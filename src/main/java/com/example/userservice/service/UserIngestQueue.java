@@ -0,0 +1,213 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.IngestStatusDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.entity.CustomUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional write-behind path for user creation. Validated users wait on a bounded queue and a
+ * single writer thread inserts them with {@link UserService#createAll}, one transaction per batch:
+ * a batch closes when it reaches {@code batch-size} users or {@code linger} after its first user
+ * arrived. When a batch fails its users are retried one by one, so one bad row only fails itself.
+ * On shutdown new submissions are refused and the queue is drained before the writer exits.
+ * Submissions hold a shared lock around the check and the offer, and shutdown takes it
+ * exclusively to close the queue, so nothing can be queued after the writer's final drain.
+ */
+@Component
+public class UserIngestQueue {
+  private static final Logger log = LoggerFactory.getLogger(UserIngestQueue.class);
+  private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final UserService userService;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long lingerNanos;
+  private final Duration shutdownTimeout;
+  private final BlockingQueue<PendingUser> queue;
+  private final Cache<String, IngestStatusDTO> statuses;
+  private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock();
+  private Thread writer;
+  private volatile boolean accepting;
+  private boolean closed;
+
+  public UserIngestQueue(
+      UserService userService,
+      @Value("${users.async-create.enabled:false}") boolean enabled,
+      @Value("${users.async-create.queue-capacity:10000}") int queueCapacity,
+      @Value("${users.async-create.batch-size:500}") int batchSize,
+      @Value("${users.async-create.linger:20ms}") Duration linger,
+      @Value("${users.async-create.status-ttl:10m}") Duration statusTtl,
+      @Value("${users.async-create.shutdown-timeout:30s}") Duration shutdownTimeout) {
+    this.userService = userService;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.lingerNanos = linger.toNanos();
+    this.shutdownTimeout = shutdownTimeout;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.statuses = Caffeine.newBuilder().expireAfterWrite(statusTtl).build();
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    accepting = true;
+    writer = new Thread(this::writeBatches, "user-ingest-writer");
+    writer.start();
+  }
+
+  /** Stops taking submissions and waits for everything already queued to be written. */
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    submitLock.writeLock().lock();
+    try {
+      closed = true;
+      accepting = false;
+    } finally {
+      submitLock.writeLock().unlock();
+    }
+    if (writer == null) {
+      return;
+    }
+    writer.join(shutdownTimeout.toMillis());
+    if (writer.isAlive()) {
+      log.warn("User ingest queue did not drain within {}; {} users not written",
+          shutdownTimeout, queue.size());
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** False once shutdown has begun; submissions are refused from then on. */
+  public boolean isAccepting() {
+    return accepting;
+  }
+
+  /**
+   * Queues an already validated user; returns {@code null} when the queue is full or shutdown has
+   * begun.
+   */
+  public IngestStatusDTO submit(UserDTO userDTO) {
+    IngestStatusDTO status = IngestStatusDTO.queued(UUID.randomUUID().toString());
+    submitLock.readLock().lock();
+    try {
+      if (closed) {
+        return null;
+      }
+      statuses.put(status.getId(), status);
+      if (!queue.offer(new PendingUser(status.getId(), userDTO))) {
+        statuses.invalidate(status.getId());
+        return null;
+      }
+    } finally {
+      submitLock.readLock().unlock();
+    }
+    return status;
+  }
+
+  /** Status of a submission, or {@code null} when the id is unknown or has expired. */
+  public IngestStatusDTO getStatus(String id) {
+    return statuses.getIfPresent(id);
+  }
+
+  public int size() {
+    return queue.size();
+  }
+
+  private void writeBatches() {
+    List<PendingUser> batch = new ArrayList<>(batchSize);
+    while (accepting || !queue.isEmpty()) {
+      try {
+        PendingUser first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          PendingUser next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        accepting = false;
+        do {
+          write(batch);
+          batch.clear();
+        } while (queue.drainTo(batch, batchSize) > 0);
+        Thread.currentThread().interrupt();
+        return;
+      }
+      write(batch);
+      batch.clear();
+    }
+    while (queue.drainTo(batch, batchSize) > 0) {
+      write(batch);
+      batch.clear();
+    }
+  }
+
+  private void write(List<PendingUser> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<UserDTO> userDTOs = new ArrayList<>(batch.size());
+    for (PendingUser pending : batch) {
+      userDTOs.add(pending.userDTO());
+    }
+    List<CustomUser> created;
+    try {
+      created = userService.createAll(userDTOs);
+    } catch (RuntimeException e) {
+      log.warn("Batch of {} queued users failed, retrying one by one", batch.size(), e);
+      batch.forEach(this::writeOne);
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      markCreated(batch.get(i).id(), created.get(i).getId());
+    }
+  }
+
+  private void writeOne(PendingUser pending) {
+    try {
+      markCreated(pending.id(), userService.create(pending.userDTO()).getId());
+    } catch (RuntimeException e) {
+      statuses.put(
+          pending.id(),
+          new IngestStatusDTO(pending.id(), IngestStatusDTO.State.FAILED, null, e.getMessage()));
+    }
+  }
+
+  private void markCreated(String id, Long userId) {
+    statuses.put(id, new IngestStatusDTO(id, IngestStatusDTO.State.CREATED, userId, null));
+  }
+
+  private record PendingUser(String id, UserDTO userDTO) {}
+}
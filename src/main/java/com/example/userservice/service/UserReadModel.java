@@ -0,0 +1,448 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory copy of every user for read-mostly deployments. All rows live in an
+ * immutable snapshot of compact records, sorted once by id and once by (birthday, id), which is
+ * replaced as a whole on every change; readers take the current snapshot from a volatile field and
+ * never lock or touch the database. Writes still go through JPA and reach the model after commit:
+ * with {@code READ_YOUR_WRITES} the committing thread applies its change before the request
+ * returns, with {@code EVENTUAL} changes are handed to a background thread that folds everything
+ * pending into a single new snapshot. Each new snapshot copies the arrays, so writes are O(n).
+ */
+@Component
+public class UserReadModel {
+  private static final Logger log = LoggerFactory.getLogger(UserReadModel.class);
+  private static final long NONE = Long.MIN_VALUE;
+  private static final Comparator<UserRecord> BIRTHDAY_ORDER =
+      Comparator.comparingLong(UserRecord::birthday).thenComparingLong(UserRecord::id);
+  private static final Snapshot EMPTY = new Snapshot(new UserRecord[0], new UserRecord[0], 0);
+
+  public enum Consistency {
+    READ_YOUR_WRITES,
+    EVENTUAL
+  }
+
+  private final UserRepository userRepository;
+  private final ShardRouter shardRouter;
+  private final TransactionTemplate reloadTransaction;
+  private final boolean enabled;
+  private final Consistency consistency;
+  private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  // Not a monitor: drain reloads over JDBC, which would pin a virtual thread's carrier.
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final ExecutorService applier;
+  private volatile Snapshot snapshot = EMPTY;
+  private volatile boolean ready;
+
+  public UserReadModel(
+      UserRepository userRepository,
+      ShardRouter shardRouter,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${users.read-model.enabled:false}") boolean enabled,
+      @Value("${users.read-model.consistency:READ_YOUR_WRITES}") Consistency consistency) {
+    this.userRepository = userRepository;
+    this.shardRouter = shardRouter;
+    // Deliberately not read-only: with replicas configured it must read from the primary, which
+    // already has the change that was just committed.
+    this.reloadTransaction = new TransactionTemplate(transactionManager);
+    this.reloadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.enabled = enabled;
+    this.consistency = consistency;
+    this.applier =
+        enabled && consistency == Consistency.EVENTUAL
+            ? Executors.newSingleThreadExecutor(
+                runnable -> {
+                  Thread thread = new Thread(runnable, "user-read-model");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+    if (enabled) {
+      Gauge.builder("users.read-model.size", this, model -> model.snapshot.byId.length)
+          .description("Users held by the in-memory read model")
+          .register(meterRegistry);
+      Gauge.builder("users.read-model.bytes", this, UserReadModel::footprintBytes)
+          .description("Estimated heap used by the in-memory read model")
+          .baseUnit("bytes")
+          .register(meterRegistry);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (applier != null) {
+      applier.shutdownNow();
+    }
+  }
+
+  /**
+   * Loads every user from the database. Changes committed while loading are queued and applied on
+   * top of the loaded snapshot before it is published.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    List<UserRecord> loaded = new ArrayList<>();
+    shardRouter.forEachShard(
+        shard ->
+            reloadTransaction.executeWithoutResult(
+                status -> {
+                  try (Stream<CustomUser> users = userRepository.streamAllByOrderById()) {
+                    users.forEach(user -> loaded.add(UserRecord.of(user)));
+                  }
+                }));
+    UserRecord[] byId = loaded.toArray(new UserRecord[0]);
+    if (shardRouter.isSharded()) {
+      Arrays.sort(byId, Comparator.comparingLong(UserRecord::id));
+    }
+    UserRecord[] byBirthday =
+        Arrays.stream(byId).filter(user -> user.birthday() != NONE).toArray(UserRecord[]::new);
+    Arrays.sort(byBirthday, BIRTHDAY_ORDER);
+    long bytes = 0;
+    for (UserRecord user : byId) {
+      bytes += user.footprintBytes();
+    }
+    writeLock.lock();
+    try {
+      snapshot = new Snapshot(byId, byBirthday, bytes);
+      ready = true;
+    } finally {
+      writeLock.unlock();
+    }
+    drain();
+    log.info(
+        "Loaded {} users into the read model, about {} KiB", byId.length, footprintBytes() / 1024);
+  }
+
+  /** True once the model is loaded and reads can be served from it. */
+  public boolean isReady() {
+    return enabled && ready;
+  }
+
+  public Consistency getConsistency() {
+    return consistency;
+  }
+
+  public int size() {
+    return snapshot.byId.length;
+  }
+
+  /** Estimated heap held by the current snapshot: records, their strings and both arrays. */
+  public long footprintBytes() {
+    Snapshot current = snapshot;
+    return current.recordBytes + 32L + 4L * (current.byId.length + current.byBirthday.length);
+  }
+
+  public CustomUser findById(Long id) {
+    Snapshot current = snapshot;
+    int position = current.positionOf(id);
+    return position >= 0 ? current.byId[position].toCustomUser() : null;
+  }
+
+  /** Every user, ordered by id. */
+  public List<CustomUser> findAll() {
+    UserRecord[] byId = snapshot.byId;
+    List<CustomUser> users = new ArrayList<>(byId.length);
+    for (UserRecord user : byId) {
+      users.add(user.toCustomUser());
+    }
+    return users;
+  }
+
+  /**
+   * Users born between {@code fromDate} and {@code toDate} inclusive, in (birthday, id) order,
+   * skipping {@code offset} users and returning at most {@code limit}.
+   */
+  public List<CustomUser> findByBirthdayBetween(Date fromDate, Date toDate, long offset, int limit) {
+    UserRecord[] byBirthday = snapshot.byBirthday;
+    int first = lowerBound(byBirthday, fromDate.getTime(), Long.MIN_VALUE);
+    int last = lowerBound(byBirthday, toDate.getTime(), Long.MAX_VALUE);
+    int start = (int) Math.min(first + Math.max(0, offset), last);
+    int end = (int) Math.min(last, (long) start + Math.max(0, limit));
+    List<CustomUser> users = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      users.add(byBirthday[i].toCustomUser());
+    }
+    return users;
+  }
+
+  /** Stores users as committed by an insert, without reading them back. */
+  public void putAll(Collection<CustomUser> users) {
+    if (!enabled) {
+      return;
+    }
+    users.forEach(user -> pending.add(new Change(user.getId(), UserRecord.of(user), false)));
+    apply();
+  }
+
+  /** Re-reads a user whose row was changed in place. */
+  public void refresh(Long id) {
+    if (!enabled) {
+      return;
+    }
+    pending.add(new Change(id, null, true));
+    apply();
+  }
+
+  public void remove(Long id) {
+    if (!enabled) {
+      return;
+    }
+    pending.add(new Change(id, null, false));
+    apply();
+  }
+
+  private void apply() {
+    if (!ready) {
+      return;
+    }
+    if (applier == null) {
+      drain();
+    } else if (drainScheduled.compareAndSet(false, true)) {
+      applier.execute(
+          () -> {
+            drainScheduled.set(false);
+            drain();
+          });
+    }
+  }
+
+  /**
+   * Applies every queued change as one new snapshot. Writers are serialized here, including the
+   * reload of refreshed rows, so a later reload can never be overwritten by an earlier one.
+   */
+  private void drain() {
+    writeLock.lock();
+    try {
+      Map<Long, Change> changes = new LinkedHashMap<>();
+      Change change;
+      while ((change = pending.poll()) != null) {
+        changes.put(change.id(), change);
+      }
+      if (changes.isEmpty()) {
+        return;
+      }
+      List<Long> reloadIds = new ArrayList<>();
+      changes.values().stream().filter(Change::reload).forEach(c -> reloadIds.add(c.id()));
+      Map<Long, UserRecord> reloaded = reload(reloadIds);
+      Map<Long, UserRecord> upserts = new HashMap<>(changes.size() * 2);
+      for (Change c : changes.values()) {
+        UserRecord user = c.reload() ? reloaded.get(c.id()) : c.user();
+        if (user != null) {
+          upserts.put(c.id(), user);
+        }
+      }
+      snapshot = snapshot.with(changes.keySet(), upserts);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private Map<Long, UserRecord> reload(List<Long> ids) {
+    Map<Long, UserRecord> reloaded = new HashMap<>(ids.size() * 2);
+    shardRouter
+        .groupByShard(ids)
+        .forEach(
+            (shard, shardIds) ->
+                shardRouter.onShard(
+                    shard,
+                    () ->
+                        reloadTransaction.executeWithoutResult(
+                            status ->
+                                userRepository
+                                    .findAllById(shardIds)
+                                    .forEach(
+                                        user -> reloaded.put(user.getId(), UserRecord.of(user))))));
+    return reloaded;
+  }
+
+  /** First position whose (birthday, id) is not less than the given key. */
+  private static int lowerBound(UserRecord[] byBirthday, long birthday, long id) {
+    int low = 0;
+    int high = byBirthday.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      UserRecord user = byBirthday[mid];
+      if (user.birthday() < birthday || (user.birthday() == birthday && user.id() < id)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private record Change(Long id, UserRecord user, boolean reload) {}
+
+  private static final class Snapshot {
+    private final UserRecord[] byId;
+    private final UserRecord[] byBirthday;
+    private final long recordBytes;
+
+    private Snapshot(UserRecord[] byId, UserRecord[] byBirthday, long recordBytes) {
+      this.byId = byId;
+      this.byBirthday = byBirthday;
+      this.recordBytes = recordBytes;
+    }
+
+    private int positionOf(long id) {
+      int low = 0;
+      int high = byId.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        long midId = byId[mid].id();
+        if (midId < id) {
+          low = mid + 1;
+        } else if (midId > id) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+
+    /** Copy with the {@code changed} ids dropped and {@code upserts} merged in. */
+    private Snapshot with(Collection<Long> changed, Map<Long, UserRecord> upserts) {
+      long bytes = recordBytes;
+      for (Long id : changed) {
+        int position = positionOf(id);
+        if (position >= 0) {
+          bytes -= byId[position].footprintBytes();
+        }
+      }
+      UserRecord[] added = upserts.values().toArray(new UserRecord[0]);
+      for (UserRecord user : added) {
+        bytes += user.footprintBytes();
+      }
+      Arrays.sort(added, Comparator.comparingLong(UserRecord::id));
+      UserRecord[] addedByBirthday =
+          Arrays.stream(added).filter(user -> user.birthday() != NONE).toArray(UserRecord[]::new);
+      Arrays.sort(addedByBirthday, BIRTHDAY_ORDER);
+      Comparator<UserRecord> idOrder = Comparator.comparingLong(UserRecord::id);
+      return new Snapshot(
+          merge(byId, changed, added, idOrder),
+          merge(byBirthday, changed, addedByBirthday, BIRTHDAY_ORDER),
+          bytes);
+    }
+
+    private static UserRecord[] merge(
+        UserRecord[] base,
+        Collection<Long> dropped,
+        UserRecord[] additions,
+        Comparator<UserRecord> order) {
+      Set<Long> droppedIds = new HashSet<>(dropped);
+      UserRecord[] merged = new UserRecord[base.length + additions.length];
+      int size = 0;
+      int next = 0;
+      for (UserRecord user : base) {
+        if (droppedIds.contains(user.id())) {
+          continue;
+        }
+        while (next < additions.length && order.compare(additions[next], user) < 0) {
+          merged[size++] = additions[next++];
+        }
+        merged[size++] = user;
+      }
+      while (next < additions.length) {
+        merged[size++] = additions[next++];
+      }
+      return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+  }
+
+  /** Immutable, compact copy of a user row; dates are epoch millis with {@link #NONE} for null. */
+  private record UserRecord(
+      long id,
+      String email,
+      String firstName,
+      String lastName,
+      long birthday,
+      String address,
+      String phoneNumber,
+      long version,
+      long lastModified) {
+
+    static UserRecord of(CustomUser user) {
+      return new UserRecord(
+          user.getId(),
+          user.getEmail(),
+          user.getFirstName(),
+          user.getLastName(),
+          user.getBirthday() == null ? NONE : user.getBirthday().getTime(),
+          user.getAddress(),
+          user.getPhoneNumber(),
+          user.getVersion() == null ? NONE : user.getVersion(),
+          user.getLastModified() == null ? NONE : user.getLastModified().getTime());
+    }
+
+    /** A fresh entity per read, so callers can never modify the snapshot. */
+    CustomUser toCustomUser() {
+      Date birthdayDate = birthday == NONE ? null : new Date(birthday);
+      return new CustomUser(
+          id,
+          email,
+          firstName,
+          lastName,
+          birthdayDate,
+          address,
+          phoneNumber,
+          version == NONE ? null : version,
+          CustomUser.monthDayOf(birthdayDate),
+          lastModified == NONE ? null : new Date(lastModified));
+    }
+
+    /** Object header, five references and four longs, plus each string with its byte array. */
+    long footprintBytes() {
+      return 64
+          + stringBytes(email)
+          + stringBytes(firstName)
+          + stringBytes(lastName)
+          + stringBytes(address)
+          + stringBytes(phoneNumber);
+    }
+
+    private static long stringBytes(String value) {
+      return value == null ? 0 : 24 + ((16 + value.length() + 7) & ~7L);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.ShardRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves users to the shard their id belongs to after shards were added. Every shard is scanned in
+ * id order, in batches; rows with {@code id % shardCount} other than the shard they are on are
+ * merged into their owner, committed there, and only then deleted from the source, so an
+ * interrupted run can simply be started again. Afterwards each shard's id sequence is moved past
+ * the ids it now holds, so newly generated ids cannot collide with moved rows. It works on plain
+ * JDBC with H2's {@code merge ... key} and sequence catalog, and is meant to run while the
+ * application is stopped.
+ */
+public class UserResharder {
+  static final String TABLE = "custom_user";
+  static final String SEQUENCE = "custom_user_seq";
+  private static final Logger log = LoggerFactory.getLogger(UserResharder.class);
+
+  private final ShardRoutingDataSource shards;
+  private final int batchSize;
+  private final int sequenceIncrement;
+
+  public UserResharder(ShardRoutingDataSource shards, int batchSize, int sequenceIncrement) {
+    this.shards = shards;
+    this.batchSize = batchSize;
+    this.sequenceIncrement = sequenceIncrement;
+  }
+
+  /** Moves every misplaced user and returns how many were moved. */
+  public long rebalance() throws SQLException {
+    int shardCount = shards.getShardCount();
+    long moved = 0;
+    for (int shard = 0; shard < shardCount; shard++) {
+      long movedFromShard = drainMisplaced(shard, shardCount);
+      if (movedFromShard > 0) {
+        log.info("Moved {} users off shard {}", movedFromShard, shard);
+      }
+      moved += movedFromShard;
+    }
+    for (int shard = 0; shard < shardCount; shard++) {
+      advanceSequence(shards.getShard(shard), shardCount);
+    }
+    return moved;
+  }
+
+  private long drainMisplaced(int shard, int shardCount) throws SQLException {
+    DataSource source = shards.getShard(shard);
+    long moved = 0;
+    long after = Long.MIN_VALUE;
+    while (true) {
+      List<Object[]> rows = new ArrayList<>(batchSize);
+      List<String> columns = readBatch(source, after, rows);
+      if (rows.isEmpty()) {
+        return moved;
+      }
+      after = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+      Map<Integer, List<Object[]>> misplaced = new TreeMap<>();
+      for (Object[] row : rows) {
+        int owner = (int) Math.floorMod(((Number) row[0]).longValue(), (long) shardCount);
+        if (owner != shard) {
+          misplaced.computeIfAbsent(owner, key -> new ArrayList<>()).add(row);
+        }
+      }
+      for (Map.Entry<Integer, List<Object[]>> entry : misplaced.entrySet()) {
+        copy(shards.getShard(entry.getKey()), columns, entry.getValue());
+        delete(source, entry.getValue());
+        moved += entry.getValue().size();
+      }
+    }
+  }
+
+  /** Reads the next batch after {@code after}; the id column is always first. */
+  private List<String> readBatch(DataSource source, long after, List<Object[]> rows)
+      throws SQLException {
+    try (Connection connection = source.getConnection();
+        PreparedStatement statement =
+            connection.prepareStatement(
+                "select * from " + TABLE + " where id > ? order by id limit ?")) {
+      statement.setLong(1, after);
+      statement.setInt(2, batchSize);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        List<String> columns = new ArrayList<>(metaData.getColumnCount());
+        columns.add("id");
+        List<Integer> positions = new ArrayList<>(metaData.getColumnCount());
+        int idPosition = 0;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+          if (metaData.getColumnLabel(i).equalsIgnoreCase("id")) {
+            idPosition = i;
+          } else {
+            columns.add(metaData.getColumnLabel(i));
+            positions.add(i);
+          }
+        }
+        while (resultSet.next()) {
+          Object[] row = new Object[columns.size()];
+          row[0] = resultSet.getObject(idPosition);
+          for (int i = 0; i < positions.size(); i++) {
+            row[i + 1] = resultSet.getObject(positions.get(i));
+          }
+          rows.add(row);
+        }
+        return columns;
+      }
+    }
+  }
+
+  private static void copy(DataSource target, List<String> columns, List<Object[]> rows)
+      throws SQLException {
+    String sql =
+        "merge into " + TABLE + " (" + String.join(", ", columns) + ") key (id) values ("
+            + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    try (Connection connection = target.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (Object[] row : rows) {
+          for (int i = 0; i < row.length; i++) {
+            statement.setObject(i + 1, row[i]);
+          }
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  private static void delete(DataSource source, List<Object[]> rows) throws SQLException {
+    try (Connection connection = source.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement =
+          connection.prepareStatement("delete from " + TABLE + " where id = ?")) {
+        for (Object[] row : rows) {
+          statement.setObject(1, row[0]);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Restarts the sequence above the largest local id of the shard, leaving a full pooled block of
+   * headroom. A sequence that is already further ahead is left alone.
+   */
+  private void advanceSequence(DataSource shard, int shardCount) throws SQLException {
+    try (Connection connection = shard.getConnection();
+        Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(true);
+      long maxId;
+      try (ResultSet resultSet = statement.executeQuery("select max(id) from " + TABLE)) {
+        resultSet.next();
+        maxId = resultSet.getLong(1);
+        if (resultSet.wasNull()) {
+          return;
+        }
+      }
+      long current;
+      try (ResultSet resultSet =
+          statement.executeQuery(
+              "select base_value from information_schema.sequences where lower(sequence_name) = '"
+                  + SEQUENCE + "'")) {
+        current = resultSet.next() ? resultSet.getLong(1) : Long.MIN_VALUE;
+      }
+      long required = Math.floorDiv(maxId, shardCount) + sequenceIncrement + 1;
+      if (current < required) {
+        statement.execute("alter sequence " + SEQUENCE + " restart with " + required);
+      }
+    }
+  }
+}
@@ -1,115 +1,746 @@
 package com.example.userservice.service;
 
+import com.example.userservice.config.CacheConfig;
 import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.LookupResponseDTO;
+import com.example.userservice.dto.PageDTO;
+import com.example.userservice.dto.UserChangeEventDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.dto.UserVersionDTO;
 import com.example.userservice.entity.CustomUser;
 import com.example.userservice.entity.UserDataErrors;
 import com.example.userservice.entity.UserDetails;
+import com.example.userservice.metrics.RequestTimings;
+import com.example.userservice.repo.ShardRouter;
 import com.example.userservice.repo.UserRepository;
-import org.apache.commons.validator.routines.EmailValidator;
+import com.example.userservice.validation.UserValidator;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDate;
-import java.time.Period;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
+  private static final Sort BIRTHDAY_ORDER = Sort.by("birthday", "id");
+  private static final Comparator<CustomUser> ID_ORDER = Comparator.comparing(CustomUser::getId);
+  private static final Comparator<CustomUser> BIRTHDAY_ID_ORDER =
+      Comparator.comparing(CustomUser::getBirthday).thenComparing(CustomUser::getId);
+  private static final Comparator<CustomUser> MONTH_DAY_ID_ORDER =
+      Comparator.comparing(CustomUser::getBirthdayMonthDay).thenComparing(CustomUser::getId);
+  private static final Comparator<Map<String, Object>> ROW_ID_ORDER =
+      Comparator.comparing(row -> (Long) row.get("id"));
+  private static final Comparator<Map<String, Object>> ROW_BIRTHDAY_ID_ORDER =
+      Comparator.comparing((Map<String, Object> row) -> (Date) row.get("birthday"))
+          .thenComparing(row -> (Long) row.get("id"));
+  private static final Set<String> VERSION_FIELDS = Set.of("version", "lastModified", "birthday");
+  private static final int MAX_UPCOMING_DAYS = 364;
+  private static final int FIRST_MONTH_DAY = 101;
+  private static final int LAST_MONTH_DAY = 1231;
   private final UserRepository userRepository;
+  private final EntityManager entityManager;
+  private final BirthdayIndex birthdayIndex;
+  private final UserValidator userValidator;
+  private final CacheManager cacheManager;
+  private final UserChangeLog changeLog;
+  private final EmailBloomFilter emailFilter;
+  private final UserReadModel readModel;
+  private final ShardRouter shardRouter;
 
-  @Value("${permissibleAge}")
-  private int permissibleAge;
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private int batchSize;
 
-  public UserService(UserRepository userRepository) {
+  @Value("${users.page.max-limit:1000}")
+  private int maxPageLimit;
+
+  @Value("${users.page.max-offset:10000}")
+  private int maxPageOffset;
+
+  @Value("${users.lookup.chunk-size:500}")
+  private int lookupChunkSize;
+
+  public UserService(
+      UserRepository userRepository,
+      EntityManager entityManager,
+      BirthdayIndex birthdayIndex,
+      UserValidator userValidator,
+      CacheManager cacheManager,
+      UserChangeLog changeLog,
+      EmailBloomFilter emailFilter,
+      UserReadModel readModel,
+      ShardRouter shardRouter) {
     this.userRepository = userRepository;
+    this.entityManager = entityManager;
+    this.birthdayIndex = birthdayIndex;
+    this.userValidator = userValidator;
+    this.cacheManager = cacheManager;
+    this.changeLog = changeLog;
+    this.emailFilter = emailFilter;
+    this.readModel = readModel;
+    this.shardRouter = shardRouter;
   }
 
   @Transactional
+  @CachePut(cacheNames = CacheConfig.USERS_CACHE, key = "#result.id")
   public CustomUser create(UserDTO userDTO) {
-    return userRepository.save(getCustomUserFromDTO(userDTO));
+    if (isEmailTaken(userDTO.getEmail())) {
+      throw new DuplicateKeyException(UserDataErrors.EMAIL_TAKEN.getTitle() + userDTO.getEmail());
+    }
+    // Flushed inside the shard scope: at commit the thread is back on the default shard.
+    CustomUser customUser =
+        shardRouter.onShard(
+            shardRouter.nextInsertShard(),
+            () -> {
+              CustomUser saved = userRepository.save(getCustomUserFromDTO(userDTO));
+              entityManager.flush();
+              return saved;
+            });
+    afterCommit(
+        () -> {
+          emailFilter.put(customUser.getEmail());
+          readModel.putAll(List.of(customUser));
+          birthdayIndex.put(customUser.getId(), customUser.getBirthday());
+          changeLog.publish(UserChangeEventDTO.Type.CREATED, customUser.getId());
+        });
+    return customUser;
   }
 
+  /**
+   * Positions in {@code userDTOs} whose email is already stored or used by an earlier entry of the
+   * list. Only emails the Bloom filter cannot rule out are looked up, with one query for the
+   * whole list.
+   */
+  @Transactional(readOnly = true)
+  public Set<Integer> findDuplicateEmails(List<UserDTO> userDTOs) {
+    Set<Integer> duplicates = new TreeSet<>();
+    Set<String> seen = new HashSet<>(userDTOs.size() * 2);
+    List<String> candidates = new ArrayList<>();
+    for (int i = 0; i < userDTOs.size(); i++) {
+      String email = userDTOs.get(i).getEmail();
+      if (!seen.add(email)) {
+        duplicates.add(i);
+      } else if (emailFilter.mightContain(email)) {
+        candidates.add(email);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return duplicates;
+    }
+    Set<String> stored = new HashSet<>();
+    shardRouter
+        .queryEveryShard(() -> userRepository.findEmailsIn(candidates))
+        .forEach(stored::addAll);
+    for (int i = 0; i < userDTOs.size(); i++) {
+      if (stored.contains(userDTOs.get(i).getEmail())) {
+        duplicates.add(i);
+      }
+    }
+    return duplicates;
+  }
+
+  /**
+   * Inserts all users in one transaction. Ids come from a pooled sequence, so Hibernate can group
+   * the inserts into JDBC batches; the persistence context is flushed and cleared every batch to
+   * keep large imports from accumulating managed entities. With sharding the whole list goes to
+   * one shard, picked round robin per call, so it stays a single local transaction; the last
+   * batch is flushed while still routed there. That shard's unique index cannot see the others,
+   * so emails are first checked against every shard.
+   */
   @Transactional
+  public List<CustomUser> createAll(List<UserDTO> userDTOs) {
+    if (shardRouter.isSharded()) {
+      Set<Integer> duplicates = findDuplicateEmails(userDTOs);
+      if (!duplicates.isEmpty()) {
+        throw new DuplicateKeyException(
+            UserDataErrors.EMAIL_TAKEN.getTitle()
+                + userDTOs.get(duplicates.iterator().next()).getEmail());
+      }
+    }
+    List<CustomUser> created = new ArrayList<>(userDTOs.size());
+    shardRouter.onShard(
+        shardRouter.nextInsertShard(),
+        () -> {
+          for (UserDTO userDTO : userDTOs) {
+            CustomUser customUser = getCustomUserFromDTO(userDTO);
+            entityManager.persist(customUser);
+            created.add(customUser);
+            if (created.size() % batchSize == 0) {
+              entityManager.flush();
+              entityManager.clear();
+            }
+          }
+          entityManager.flush();
+        });
+    afterCommit(
+        () -> {
+          readModel.putAll(created);
+          created.forEach(
+              user -> {
+                emailFilter.put(user.getEmail());
+                birthdayIndex.put(user.getId(), user.getBirthday());
+                changeLog.publish(UserChangeEventDTO.Type.CREATED, user.getId());
+              });
+        });
+    return created;
+  }
+
+  /** Served from the read model when it is enabled; otherwise read from every shard. */
   public List<CustomUser> readAll() {
-    return userRepository.findAll();
+    if (readModel.isReady()) {
+      return readModel.findAll();
+    }
+    return ShardRouter.merge(
+        shardRouter.queryEveryShard(() -> userRepository.findAll()),
+        ID_ORDER,
+        0,
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * Reads up to {@code limit} users with an id greater than {@code after}, ordered by id. Seeks
+   * straight to the cursor through the primary key, so every page costs the same regardless of
+   * depth. With sharding every shard seeks to the cursor and the pages are merged by id.
+   */
+  @Transactional(readOnly = true)
+  public PageDTO<CustomUser> readPage(Long after, int limit) {
+    int pageSize = pageSize(limit);
+    List<CustomUser> users =
+        ShardRouter.merge(
+            shardRouter.queryEveryShard(
+                () ->
+                    userRepository.findByIdGreaterThanOrderByIdAsc(
+                        after == null ? 0L : after, Limit.of(pageSize + 1))),
+            ID_ORDER,
+            0,
+            pageSize + 1);
+    Long nextCursor = null;
+    if (users.size() > pageSize) {
+      users = users.subList(0, pageSize);
+      nextCursor = users.get(pageSize - 1).getId();
+    }
+    return new PageDTO<>(users, nextCursor);
+  }
+
+  /**
+   * Same page as {@link #readPage(Long, int)}, but only {@code fields} (plus {@code id}) are
+   * selected and returned, without materializing entities.
+   */
+  @Transactional(readOnly = true)
+  public PageDTO<Map<String, Object>> readPage(Long after, int limit, List<String> fields) {
+    int pageSize = pageSize(limit);
+    Set<String> selected = new LinkedHashSet<>(fields);
+    List<Map<String, Object>> rows =
+        ShardRouter.merge(
+            shardRouter.queryEveryShard(
+                () ->
+                    userRepository.findFieldsByIdGreaterThan(
+                        selected, after == null ? 0L : after, pageSize + 1)),
+            ROW_ID_ORDER,
+            0,
+            pageSize + 1);
+    Long nextCursor = null;
+    if (rows.size() > pageSize) {
+      rows = rows.subList(0, pageSize);
+      nextCursor = (Long) rows.get(pageSize - 1).get("id");
+    }
+    return new PageDTO<>(rows, nextCursor);
+  }
+
+  /**
+   * Feeds every user to {@code consumer} in id order while the rows are read from a server-side
+   * cursor. The persistence context is cleared after each fetch-size chunk, so memory stays flat
+   * however large the table is. With sharding the shards are exported one after another, each in
+   * its own read transaction and in id order.
+   */
+  public void exportAll(Consumer<CustomUser> consumer) {
+    shardRouter.readEachShard(
+        () -> {
+          try (Stream<CustomUser> users = userRepository.streamAllByOrderById()) {
+            int[] count = {0};
+            users.forEach(
+                user -> {
+                  consumer.accept(user);
+                  if (++count[0] % UserRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                  }
+                });
+          }
+        });
   }
 
   @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#customUser.id")
   public boolean update(CustomUser customUser) {
-    if (userRepository.findById(customUser.getId()).isEmpty()) {
-      return false;
-    } else {
-      userRepository.save(customUser);
+    if (isEmailTakenByOther(customUser.getEmail(), customUser.getId())) {
+      throw new DuplicateKeyException(
+          UserDataErrors.EMAIL_TAKEN.getTitle() + customUser.getEmail());
+    }
+    return shardRouter.onShard(
+        shardRouter.shardOf(customUser.getId()), () -> updateOnShard(customUser));
+  }
+
+  private boolean updateOnShard(CustomUser customUser) {
+    if (userRepository.updateUser(customUser) > 0) {
+      afterCommit(
+          () -> {
+            emailFilter.put(customUser.getEmail());
+            readModel.refresh(customUser.getId());
+            birthdayIndex.put(customUser.getId(), customUser.getBirthday());
+            changeLog.publish(UserChangeEventDTO.Type.UPDATED, customUser.getId());
+          });
       return true;
     }
+    if (customUser.getVersion() != null && userRepository.existsById(customUser.getId())) {
+      throw new ObjectOptimisticLockingFailureException(CustomUser.class, customUser.getId());
+    }
+    return false;
   }
 
+  /** Applies a partial update; only the columns present in {@code patch} are written. */
   @Transactional
-  public boolean delete(Long id) {
-    boolean isUserExist = userRepository.existsById(id);
-    if (isUserExist) userRepository.deleteById(id);
-    return isUserExist;
+  @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+  public boolean patch(Long id, UserPatchDTO patch) {
+    if (patch.isPresent(UserPatchDTO.EMAIL) && isEmailTakenByOther(patch.getEmail(), id)) {
+      throw new DuplicateKeyException(UserDataErrors.EMAIL_TAKEN.getTitle() + patch.getEmail());
+    }
+    return shardRouter.onShard(shardRouter.shardOf(id), () -> patchOnShard(id, patch));
   }
 
-  @Transactional
-  public CustomUser getUserById(Long id) {
-    return userRepository.findById(id).orElse(null);
+  private boolean patchOnShard(Long id, UserPatchDTO patch) {
+    if (userRepository.patchUser(id, patch) > 0) {
+      afterCommit(
+          () -> {
+            if (patch.isPresent(UserPatchDTO.EMAIL)) {
+              emailFilter.put(patch.getEmail());
+            }
+            readModel.refresh(id);
+            if (patch.isPresent(UserPatchDTO.BIRTHDAY)) {
+              birthdayIndex.put(id, patch.getBirthday());
+            }
+            changeLog.publish(UserChangeEventDTO.Type.UPDATED, id);
+          });
+      return true;
+    }
+    if (patch.getVersion() != null && userRepository.existsById(id)) {
+      throw new ObjectOptimisticLockingFailureException(CustomUser.class, id);
+    }
+    return false;
   }
 
   @Transactional
-  public List<CustomUser> findUsersByBirthdayRange(Date fromDate, Date toDate) {
-    return userRepository.findByBirthdayBetween(fromDate, toDate);
+  @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+  public boolean delete(Long id) {
+    return shardRouter.onShard(shardRouter.shardOf(id), () -> deleteOnShard(id));
   }
 
-  public ErrorResponseDTO dataCorrectnessCheck(UserDetails user) {
-    ErrorResponseDTO errorResponse = new ErrorResponseDTO();
-    if (user == null) {
-      errorResponse.addErrorMessage(UserDataErrors.USER_NULL.getTitle());
-      return errorResponse;
+  private boolean deleteOnShard(Long id) {
+    if (userRepository.deleteUserById(id) > 0) {
+      afterCommit(
+          () -> {
+            readModel.remove(id);
+            birthdayIndex.remove(id);
+            changeLog.publish(UserChangeEventDTO.Type.DELETED, id);
+          });
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Answered by the read model when it is loaded, and then never cached: in {@code EVENTUAL} mode
+   * the eviction of a write runs before the model has applied it, and caching the model's answer
+   * would keep the old user for the whole cache TTL. Database reads go through the user cache.
+   */
+  public CustomUser getUserById(Long id) {
+    if (readModel.isReady()) {
+      return readModel.findById(id);
     }
-    if (!isEmailCorrect(user.getEmail())) {
-      errorResponse.addErrorMessage(UserDataErrors.EMAIL.getTitle());
+    Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+    CustomUser cached = cache == null ? null : cache.get(id, CustomUser.class);
+    if (cached != null) {
+      return cached;
     }
-    if ((user.getFirstName() == null) || (user.getFirstName().isEmpty())) {
-      errorResponse.addErrorMessage(UserDataErrors.FIRSTNAME.getTitle());
+    CustomUser user =
+        shardRouter.onShard(
+            shardRouter.shardOf(id), () -> userRepository.findById(id).orElse(null));
+    if (user != null && cache != null) {
+      cache.put(id, user);
     }
-    if ((user.getLastName() == null) || (user.getLastName().isEmpty())) {
-      errorResponse.addErrorMessage(UserDataErrors.LASTNAME.getTitle());
+    return user;
+  }
+
+  /**
+   * Resolves many ids at once. Ids already in the user cache are served from it; the rest are
+   * read with {@code IN} queries of at most {@code users.lookup.chunk-size} ids and cached. Users
+   * come back in request order with duplicates collapsed, and unknown ids are listed as missing.
+   */
+  @Transactional(readOnly = true)
+  public LookupResponseDTO lookup(List<Long> ids) {
+    Set<Long> requested = new LinkedHashSet<>(ids);
+    requested.remove(null);
+    Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+    Map<Long, CustomUser> usersById = new HashMap<>(requested.size() * 2);
+    List<Long> uncached = new ArrayList<>();
+    for (Long id : requested) {
+      CustomUser user = cache == null ? null : cache.get(id, CustomUser.class);
+      if (user != null) {
+        usersById.put(id, user);
+      } else {
+        uncached.add(id);
+      }
     }
-    if (user.getBirthday() != null) {
-      if (!isUserAdult(user.getBirthday(), permissibleAge)) {
-        errorResponse.addErrorMessage(UserDataErrors.DATE_YOUNG_USER.getTitle() + permissibleAge);
+    for (int from = 0; from < uncached.size(); from += lookupChunkSize) {
+      List<Long> chunk = uncached.subList(from, Math.min(from + lookupChunkSize, uncached.size()));
+      for (CustomUser user : shardRouter.queryByIds(chunk, userRepository::findAllById)) {
+        usersById.put(user.getId(), user);
+        if (cache != null) {
+          cache.put(user.getId(), user);
+        }
       }
-      if (isDateInFuture(user.getBirthday())) {
-        errorResponse.addErrorMessage(UserDataErrors.DATE_FUTURE.getTitle());
+    }
+    LookupResponseDTO response = new LookupResponseDTO();
+    for (Long id : requested) {
+      CustomUser user = usersById.get(id);
+      if (user != null) {
+        response.getFound().add(user);
+      } else {
+        response.getMissing().add(id);
       }
-    } else {
-      errorResponse.addErrorMessage(UserDataErrors.DATE_NULL.getTitle());
     }
+    return response;
+  }
 
-    return errorResponse;
+  /**
+   * Version stamp of a user, or {@code null} when it does not exist. A cached user answers it
+   * directly; otherwise only the version columns of the row are read.
+   */
+  @Transactional(readOnly = true)
+  public UserVersionDTO getUserVersion(Long id) {
+    Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+    CustomUser user = cache == null ? null : cache.get(id, CustomUser.class);
+    if (user != null) {
+      return UserVersionDTO.of(user);
+    }
+    return shardRouter.onShard(
+        shardRouter.shardOf(id), () -> userRepository.findVersionById(id).orElse(null));
   }
 
-  private boolean isEmailCorrect(String email) {
-    return (EmailValidator.getInstance().isValid(email));
+  /**
+   * Version stamps of the page {@link #findUsersByBirthdayRange(Date, Date, int, int)} would
+   * return, in the same order, read without loading the users.
+   */
+  @Transactional(readOnly = true)
+  public List<UserVersionDTO> findVersionsByBirthdayRange(
+      Date fromDate, Date toDate, int page, int size) {
+    int limit = pageSize(size);
+    if (isTooDeep(page, limit)) {
+      return List.of();
+    }
+    if (birthdayIndex.isReady()) {
+      long[] ids = birthdayIndex.findIds(fromDate, toDate, offset(page, limit), limit);
+      return inIdOrder(
+          ids,
+          shardRouter.queryByIds(idList(ids), userRepository::findVersionsByIdIn),
+          UserVersionDTO::getId);
+    }
+    if (shardRouter.isSharded()) {
+      return pageAcrossShards(
+              rows ->
+                  userRepository.findFieldsByBirthdayBetween(
+                      VERSION_FIELDS, fromDate, toDate, 0, rows),
+              ROW_BIRTHDAY_ID_ORDER,
+              (int) offset(page, limit),
+              limit)
+          .stream()
+          .map(
+              row ->
+                  new UserVersionDTO(
+                      (Long) row.get("id"),
+                      (Long) row.get("version"),
+                      (Date) row.get("lastModified")))
+          .toList();
+    }
+    return userRepository.findVersionsByBirthdayBetween(
+        fromDate, toDate, PageRequest.of(Math.max(page, 0), limit, BIRTHDAY_ORDER));
   }
 
-  private boolean isUserAdult(Date dateOfBirth, int permissibleAge) {
-    return getYearsBetweenDateAndNow(dateOfBirth) >= permissibleAge;
+  public List<CustomUser> findUsersByBirthdayRange(Date fromDate, Date toDate, int page, int size) {
+    int limit = pageSize(size);
+    if (isTooDeep(page, limit)) {
+      return List.of();
+    }
+    if (readModel.isReady()) {
+      return readModel.findByBirthdayBetween(fromDate, toDate, offset(page, limit), limit);
+    }
+    if (birthdayIndex.isReady()) {
+      long[] ids = birthdayIndex.findIds(fromDate, toDate, offset(page, limit), limit);
+      return inIdOrder(
+          ids, shardRouter.queryByIds(idList(ids), userRepository::findAllById), CustomUser::getId);
+    }
+    if (shardRouter.isSharded()) {
+      return pageAcrossShards(
+          rows ->
+              userRepository.findByBirthdayBetween(
+                  fromDate, toDate, PageRequest.of(0, rows, BIRTHDAY_ORDER)),
+          BIRTHDAY_ID_ORDER,
+          (int) offset(page, limit),
+          limit);
+    }
+    return userRepository.findByBirthdayBetween(
+        fromDate, toDate, PageRequest.of(Math.max(page, 0), limit, BIRTHDAY_ORDER));
   }
 
-  private boolean isDateInFuture(Date dateOfBirth) {
-    return getYearsBetweenDateAndNow(dateOfBirth) < 0;
+  /** Projected counterpart of {@link #findUsersByBirthdayRange(Date, Date, int, int)}. */
+  @Transactional(readOnly = true)
+  public List<Map<String, Object>> findUsersByBirthdayRange(
+      Date fromDate, Date toDate, int page, int size, List<String> fields) {
+    Set<String> selected = new LinkedHashSet<>(fields);
+    int limit = pageSize(size);
+    if (isTooDeep(page, limit)) {
+      return List.of();
+    }
+    int offset = (int) offset(page, limit);
+    if (birthdayIndex.isReady()) {
+      long[] ids = birthdayIndex.findIds(fromDate, toDate, offset, limit);
+      return inIdOrder(
+          ids,
+          shardRouter.queryByIds(
+              idList(ids), shardIds -> userRepository.findFieldsByIdIn(selected, shardIds)),
+          row -> (Long) row.get("id"));
+    }
+    if (shardRouter.isSharded()) {
+      Set<String> shardFields = new LinkedHashSet<>(selected);
+      shardFields.add("birthday");
+      List<Map<String, Object>> rows =
+          pageAcrossShards(
+              shardRows ->
+                  userRepository.findFieldsByBirthdayBetween(
+                      shardFields, fromDate, toDate, 0, shardRows),
+              ROW_BIRTHDAY_ID_ORDER,
+              offset,
+              limit);
+      if (!selected.contains("birthday")) {
+        rows.forEach(row -> row.remove("birthday"));
+      }
+      return rows;
+    }
+    return userRepository.findFieldsByBirthdayBetween(selected, fromDate, toDate, offset, limit);
   }
 
-  private int getYearsBetweenDateAndNow(Date dateOfBirth) {
+  /**
+   * Users whose birthday anniversary falls within the next {@code days} days (today included),
+   * ordered by upcoming date. When the window crosses New Year it is split into two month/day
+   * ranges, each served by the month/day index.
+   */
+  @Transactional(readOnly = true)
+  public List<CustomUser> findUpcomingBirthdays(int days, int page, int size) {
     LocalDate today = LocalDate.now();
-    LocalDate dob = dateOfBirth.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-    Period period = Period.between(dob, today);
-    return period.getYears();
+    int fromMonthDay = CustomUser.monthDayOf(today);
+    int toMonthDay =
+        CustomUser.monthDayOf(today.plusDays(Math.max(0, Math.min(days, MAX_UPCOMING_DAYS))));
+    int limit = pageSize(size);
+    if (isTooDeep(page, limit)) {
+      return List.of();
+    }
+    int offset = (int) offset(page, limit);
+    if (fromMonthDay <= toMonthDay) {
+      return findByMonthDayBetween(fromMonthDay, toMonthDay, offset, limit);
+    }
+    long beforeNewYear =
+        shardRouter
+            .queryEveryShard(
+                () -> userRepository.countByBirthdayMonthDayBetween(fromMonthDay, LAST_MONTH_DAY))
+            .stream()
+            .mapToLong(Long::longValue)
+            .sum();
+    List<CustomUser> users = new ArrayList<>(limit);
+    if (offset < beforeNewYear) {
+      users.addAll(findByMonthDayBetween(fromMonthDay, LAST_MONTH_DAY, offset, limit));
+    }
+    if (users.size() < limit) {
+      users.addAll(
+          findByMonthDayBetween(
+              FIRST_MONTH_DAY,
+              toMonthDay,
+              (int) Math.max(0, offset - beforeNewYear),
+              limit - users.size()));
+    }
+    return users;
+  }
+
+  private List<CustomUser> findByMonthDayBetween(int from, int to, int offset, int limit) {
+    if (!shardRouter.isSharded()) {
+      return userRepository.findByBirthdayMonthDayBetween(from, to, offset, limit);
+    }
+    return pageAcrossShards(
+        rows -> userRepository.findByBirthdayMonthDayBetween(from, to, 0, rows),
+        MONTH_DAY_ID_ORDER,
+        offset,
+        limit);
+  }
+
+  /**
+   * Offset pagination over all shards: each shard returns its first {@code offset + limit} rows
+   * in {@code order}, and the merged stream is cut to the requested slice. Callers keep
+   * {@code offset} within {@code users.page.max-offset}, which bounds what every shard reads.
+   */
+  private <T> List<T> pageAcrossShards(
+      IntFunction<List<T>> firstRows, Comparator<? super T> order, int offset, int limit) {
+    return ShardRouter.merge(
+        shardRouter.queryEveryShard(() -> firstRows.apply(offset + limit)), order, offset, limit);
+  }
+
+  /**
+   * The Bloom filter answers most new emails; only possible matches reach the database, where
+   * every shard is asked since the unique index only covers one shard.
+   */
+  private boolean isEmailTaken(String email) {
+    return emailFilter.mightContain(email)
+        && shardRouter.queryEveryShard(() -> userRepository.existsByEmail(email)).contains(true);
+  }
+
+  /**
+   * Whether a user other than {@code id} holds {@code email} on another shard. Without sharding
+   * the unique index already refuses the write, so nothing is queried. The check and the write
+   * are not atomic across shards; it narrows the window rather than closing it.
+   */
+  private boolean isEmailTakenByOther(String email, Long id) {
+    return shardRouter.isSharded()
+        && email != null
+        && emailFilter.mightContain(email)
+        && shardRouter
+            .queryEveryShard(() -> userRepository.existsByEmailAndIdNot(email, id))
+            .contains(true);
+  }
+
+  private static List<Long> idList(long[] ids) {
+    List<Long> idList = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      idList.add(id);
+    }
+    return idList;
+  }
+
+  /** Orders {@code rows} as {@code ids}, dropping ids that no longer have a row. */
+  private static <T> List<T> inIdOrder(long[] ids, Iterable<T> rows, Function<T, Long> idOf) {
+    Map<Long, T> rowsById = new HashMap<>(ids.length * 2);
+    for (T row : rows) {
+      rowsById.put(idOf.apply(row), row);
+    }
+    List<T> ordered = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      T row = rowsById.get(id);
+      if (row != null) {
+        ordered.add(row);
+      }
+    }
+    return ordered;
+  }
+
+  /** Runs {@code action} once the current transaction commits, or right away outside one. */
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  /** Rows before {@code page}, computed without int overflow. */
+  private static long offset(int page, int limit) {
+    return (long) Math.max(page, 0) * limit;
+  }
+
+  /** Whether {@code page} starts past {@code users.page.max-offset}. */
+  private boolean isTooDeep(int page, int limit) {
+    return offset(page, limit) > maxPageOffset;
+  }
+
+  private int pageSize(int size) {
+    return Math.max(1, Math.min(size, maxPageLimit));
+  }
+
+  public ErrorResponseDTO dataCorrectnessCheck(UserDetails user) {
+    long start = System.nanoTime();
+    try {
+      return userValidator.validate(user);
+    } finally {
+      RequestTimings.record(RequestTimings.Layer.VALIDATION, System.nanoTime() - start);
+    }
+  }
+
+  /** Validates only the fields present in {@code patch}, using the same rules as a full check. */
+  public ErrorResponseDTO patchCorrectnessCheck(UserPatchDTO patch) {
+    long start = System.nanoTime();
+    try {
+      return userValidator.validatePatch(patch);
+    } finally {
+      RequestTimings.record(RequestTimings.Layer.VALIDATION, System.nanoTime() - start);
+    }
+  }
+
+  /** Rejects lookups of more ids than one page may hold. */
+  public ErrorResponseDTO lookupCorrectnessCheck(List<Long> ids) {
+    ErrorResponseDTO errorResponse = new ErrorResponseDTO();
+    if (ids.size() > maxPageLimit) {
+      errorResponse.addErrorMessage(UserDataErrors.TOO_MANY_IDS.getTitle() + maxPageLimit);
+    }
+    return errorResponse;
+  }
+
+  /**
+   * Rejects pages that start more than {@code users.page.max-offset} rows in; a sharded read
+   * would otherwise pull that many rows from every shard.
+   */
+  public ErrorResponseDTO pageCorrectnessCheck(int page, int size) {
+    ErrorResponseDTO errorResponse = new ErrorResponseDTO();
+    if (isTooDeep(page, pageSize(size))) {
+      errorResponse.addErrorMessage(UserDataErrors.PAGE_TOO_DEEP.getTitle() + maxPageOffset);
+    }
+    return errorResponse;
+  }
+
+  /** Rejects {@code ?fields=} entries that are not selectable user properties. */
+  public ErrorResponseDTO fieldsCorrectnessCheck(List<String> fields) {
+    ErrorResponseDTO errorResponse = new ErrorResponseDTO();
+    for (String field : fields) {
+      if (!UserRepository.PROJECTABLE_FIELDS.contains(field)) {
+        errorResponse.addErrorMessage(UserDataErrors.UNKNOWN_FIELD.getTitle() + field);
+      }
+    }
+    return errorResponse;
   }
 
   private CustomUser getCustomUserFromDTO(UserDTO userDTO) {
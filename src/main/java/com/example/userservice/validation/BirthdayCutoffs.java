@@ -0,0 +1,60 @@
+package com.example.userservice.validation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Day boundaries for birthday checks, recomputed once per day. A birthday is compared against
+ * them as epoch millis, which replaces the zone conversion and {@code Period} arithmetic per call.
+ */
+@Component
+public class BirthdayCutoffs {
+  private final int permissibleAge;
+  private volatile Cutoffs cutoffs;
+
+  public BirthdayCutoffs(@Value("${permissibleAge}") int permissibleAge) {
+    this.permissibleAge = permissibleAge;
+    this.cutoffs = compute();
+  }
+
+  public int getPermissibleAge() {
+    return permissibleAge;
+  }
+
+  /** True when the birthday is at least {@code permissibleAge} years ago. */
+  public boolean isAdult(Date birthday) {
+    return birthday.getTime() < current().adultBefore;
+  }
+
+  /** True when the birthday is after today. */
+  public boolean isInFuture(Date birthday) {
+    return birthday.getTime() >= current().tomorrow;
+  }
+
+  private Cutoffs current() {
+    Cutoffs current = cutoffs;
+    if (System.currentTimeMillis() >= current.tomorrow) {
+      current = compute();
+      cutoffs = current;
+    }
+    return current;
+  }
+
+  private Cutoffs compute() {
+    ZoneId zone = ZoneId.systemDefault();
+    LocalDate today = LocalDate.now(zone);
+    long tomorrow = startOfDay(today.plusDays(1), zone);
+    long adultBefore = startOfDay(today.minusYears(permissibleAge).plusDays(1), zone);
+    return new Cutoffs(tomorrow, adultBefore);
+  }
+
+  private static long startOfDay(LocalDate date, ZoneId zone) {
+    return date.atStartOfDay(zone).toInstant().toEpochMilli();
+  }
+
+  private record Cutoffs(long tomorrow, long adultBefore) {}
+}
@@ -0,0 +1,31 @@
+package com.example.userservice.validation;
+
+import com.example.userservice.entity.UserDetails;
+
+import java.util.function.Function;
+
+/**
+ * A single check applied to a user. Rules are Spring beans picked up by {@link UserValidator} in
+ * {@code @Order} order, so new checks can be added without touching the existing ones.
+ */
+public interface UserValidationRule {
+  /** Name of the user field this rule checks; PATCH requests only run rules for sent fields. */
+  String field();
+
+  /** Returns {@code null} when the user passes, otherwise the error message to report. */
+  String validate(UserDetails user);
+
+  static UserValidationRule of(String field, Function<UserDetails, String> check) {
+    return new UserValidationRule() {
+      @Override
+      public String field() {
+        return field;
+      }
+
+      @Override
+      public String validate(UserDetails user) {
+        return check.apply(user);
+      }
+    };
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.userservice.validation;
+
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.UserDataErrors;
+import org.apache.commons.validator.routines.EmailValidator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+/** Built-in user rules. Error messages are resolved once here rather than on every check. */
+@Configuration
+public class UserValidationRules {
+
+  @Bean
+  @Order(100)
+  public UserValidationRule emailRule() {
+    EmailValidator emailValidator = EmailValidator.getInstance();
+    String message = UserDataErrors.EMAIL.getTitle();
+    return UserValidationRule.of(
+        UserPatchDTO.EMAIL, user -> emailValidator.isValid(user.getEmail()) ? null : message);
+  }
+
+  @Bean
+  @Order(200)
+  public UserValidationRule firstNameRule() {
+    String message = UserDataErrors.FIRSTNAME.getTitle();
+    return UserValidationRule.of(
+        UserPatchDTO.FIRST_NAME, user -> isEmpty(user.getFirstName()) ? message : null);
+  }
+
+  @Bean
+  @Order(300)
+  public UserValidationRule lastNameRule() {
+    String message = UserDataErrors.LASTNAME.getTitle();
+    return UserValidationRule.of(
+        UserPatchDTO.LAST_NAME, user -> isEmpty(user.getLastName()) ? message : null);
+  }
+
+  @Bean
+  @Order(400)
+  public UserValidationRule adultRule(BirthdayCutoffs cutoffs) {
+    String message = UserDataErrors.DATE_YOUNG_USER.getTitle() + cutoffs.getPermissibleAge();
+    return UserValidationRule.of(
+        UserPatchDTO.BIRTHDAY,
+        user ->
+            user.getBirthday() == null || cutoffs.isAdult(user.getBirthday()) ? null : message);
+  }
+
+  @Bean
+  @Order(500)
+  public UserValidationRule notInFutureRule(BirthdayCutoffs cutoffs) {
+    String message = UserDataErrors.DATE_FUTURE.getTitle();
+    return UserValidationRule.of(
+        UserPatchDTO.BIRTHDAY,
+        user ->
+            user.getBirthday() != null && cutoffs.isInFuture(user.getBirthday()) ? message : null);
+  }
+
+  @Bean
+  @Order(600)
+  public UserValidationRule birthdayPresentRule() {
+    String message = UserDataErrors.DATE_NULL.getTitle();
+    return UserValidationRule.of(
+        UserPatchDTO.BIRTHDAY, user -> user.getBirthday() == null ? message : null);
+  }
+
+  private static boolean isEmpty(String value) {
+    return value == null || value.isEmpty();
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.userservice.validation;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.entity.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs the registered {@link UserValidationRule}s. A valid user gets the shared
+ * {@link ErrorResponseDTO#valid()} result, so the happy path allocates no result objects; an
+ * {@link ErrorResponseDTO} is only created once the first rule fails.
+ */
+@Component
+public class UserValidator {
+  private final UserValidationRule[] rules;
+
+  public UserValidator(List<UserValidationRule> rules) {
+    this.rules = rules.toArray(new UserValidationRule[0]);
+  }
+
+  public ErrorResponseDTO validate(UserDetails user) {
+    if (user == null) {
+      return ErrorResponseDTO.of(UserDataErrors.USER_NULL.getTitle());
+    }
+    ErrorResponseDTO errorResponse = null;
+    for (UserValidationRule rule : rules) {
+      errorResponse = collect(errorResponse, rule.validate(user));
+    }
+    return errorResponse == null ? ErrorResponseDTO.valid() : errorResponse;
+  }
+
+  /** Runs only the rules whose field is present in the patch. */
+  public ErrorResponseDTO validatePatch(UserPatchDTO patch) {
+    if (patch == null || patch.getPresentFields().isEmpty()) {
+      return ErrorResponseDTO.of(UserDataErrors.PATCH_EMPTY.getTitle());
+    }
+    ErrorResponseDTO errorResponse = null;
+    for (UserValidationRule rule : rules) {
+      if (patch.isPresent(rule.field())) {
+        errorResponse = collect(errorResponse, rule.validate(patch));
+      }
+    }
+    return errorResponse == null ? ErrorResponseDTO.valid() : errorResponse;
+  }
+
+  private static ErrorResponseDTO collect(ErrorResponseDTO errorResponse, String error) {
+    if (error == null) {
+      return errorResponse;
+    }
+    if (errorResponse == null) {
+      errorResponse = new ErrorResponseDTO();
+    }
+    errorResponse.addErrorMessage(error);
+    return errorResponse;
+  }
+}
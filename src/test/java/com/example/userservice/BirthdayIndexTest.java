@@ -0,0 +1,129 @@
+package com.example.userservice;
+
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import com.example.userservice.service.BirthdayIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BirthdayIndexTest {
+  @Mock private UserRepository userRepository;
+  @Mock private PlatformTransactionManager transactionManager;
+  private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+  private ShardRouter shardRouter;
+  private BirthdayIndex birthdayIndex;
+
+  @BeforeEach
+  void setUp() {
+    shardRouter = new ShardRouter(transactionManager, List.of(), 1);
+    birthdayIndex = new BirthdayIndex(userRepository, shardRouter, true);
+  }
+
+  @Test
+  void rebuildAndFind() throws ParseException {
+    when(userRepository.streamIdAndBirthday())
+        .thenReturn(
+            Stream.of(
+                new Object[] {3L, sdf.parse("1970-10-18")},
+                new Object[] {1L, sdf.parse("1980-10-10")},
+                new Object[] {2L, sdf.parse("1980-10-10")},
+                new Object[] {4L, sdf.parse("2003-10-10")}));
+    assertFalse(birthdayIndex.isReady());
+    birthdayIndex.rebuild();
+    assertTrue(birthdayIndex.isReady());
+    assertEquals(4, birthdayIndex.size());
+
+    assertArrayEquals(
+        new long[] {1L, 2L},
+        birthdayIndex.findIds(sdf.parse("1980-10-10"), sdf.parse("1980-10-10"), 0, 10));
+    assertArrayEquals(
+        new long[] {3L, 1L, 2L, 4L},
+        birthdayIndex.findIds(sdf.parse("1970-01-01"), sdf.parse("2010-01-01"), 0, 10));
+    assertArrayEquals(
+        new long[] {2L, 4L},
+        birthdayIndex.findIds(sdf.parse("1970-01-01"), sdf.parse("2010-01-01"), 2, 2));
+    assertArrayEquals(
+        new long[0], birthdayIndex.findIds(sdf.parse("1990-01-01"), sdf.parse("2000-01-01"), 0, 10));
+    assertArrayEquals(
+        new long[0],
+        birthdayIndex.findIds(
+            sdf.parse("1970-01-01"), sdf.parse("2010-01-01"), Long.MAX_VALUE, 10));
+    assertArrayEquals(
+        new long[] {4L},
+        birthdayIndex.findIds(
+            sdf.parse("1970-01-01"), sdf.parse("2010-01-01"), 3, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void keepsChangesMadeWhileRebuilding() throws ParseException {
+    Date newBirthday = sdf.parse("1990-01-01");
+    when(userRepository.streamIdAndBirthday())
+        .thenReturn(
+            Stream.of(
+                    new Object[] {1L, sdf.parse("1980-10-10")},
+                    new Object[] {2L, sdf.parse("1980-10-10")})
+                .peek(
+                    row -> {
+                      if (row[0].equals(2L)) {
+                        birthdayIndex.remove(1L);
+                        birthdayIndex.put(3L, newBirthday);
+                      }
+                    }));
+    birthdayIndex.rebuild();
+
+    assertEquals(2, birthdayIndex.size());
+    assertArrayEquals(
+        new long[] {2L, 3L},
+        birthdayIndex.findIds(sdf.parse("1970-01-01"), sdf.parse("2010-01-01"), 0, 10));
+  }
+
+  @Test
+  void incrementalUpdates() throws ParseException {
+    birthdayIndex.load(new int[0], new long[0], 0);
+    for (long id = 1; id <= 40; id++) {
+      birthdayIndex.put(id, sdf.parse(String.format("19%02d-01-01", 80 - id)));
+    }
+    assertEquals(40, birthdayIndex.size());
+    assertArrayEquals(
+        new long[] {40L, 39L},
+        birthdayIndex.findIds(sdf.parse("1900-01-01"), sdf.parse("2000-01-01"), 0, 2));
+
+    birthdayIndex.put(40L, sdf.parse("1999-01-01"));
+    assertArrayEquals(
+        new long[] {39L},
+        birthdayIndex.findIds(sdf.parse("1900-01-01"), sdf.parse("2000-01-01"), 0, 1));
+    assertArrayEquals(
+        new long[] {40L},
+        birthdayIndex.findIds(sdf.parse("1999-01-01"), sdf.parse("1999-12-31"), 0, 10));
+
+    birthdayIndex.remove(40L);
+    birthdayIndex.put(39L, null);
+    assertEquals(38, birthdayIndex.size());
+    assertArrayEquals(
+        new long[] {38L},
+        birthdayIndex.findIds(sdf.parse("1900-01-01"), sdf.parse("2000-01-01"), 0, 1));
+  }
+
+  @Test
+  void disabledIndexIgnoresWrites() throws ParseException {
+    BirthdayIndex disabled = new BirthdayIndex(userRepository, shardRouter, false);
+    disabled.rebuild();
+    disabled.put(1L, sdf.parse("1980-10-10"));
+    assertFalse(disabled.isReady());
+    assertEquals(0, disabled.size());
+  }
+}
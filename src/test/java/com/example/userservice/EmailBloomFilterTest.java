@@ -0,0 +1,56 @@
+package com.example.userservice;
+
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import com.example.userservice.service.EmailBloomFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class EmailBloomFilterTest {
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private final ShardRouter shardRouter =
+      new ShardRouter(mock(PlatformTransactionManager.class), List.of(), 1);
+  private final EmailBloomFilter filter =
+      new EmailBloomFilter(userRepository, shardRouter, 10_000, 0.01);
+
+  @Test
+  void reportsEverythingUntilLoaded() {
+    assertFalse(filter.isReady());
+    assertTrue(filter.mightContain("maxim.chikilev@gmail.com"));
+  }
+
+  @Test
+  void containsLoadedAndAddedEmails() {
+    when(userRepository.streamAllEmails()).thenReturn(Stream.of("maxim.chikilev@gmail.com"));
+    filter.rebuild();
+    filter.put("tolya.chikilev@gmail.com");
+
+    assertTrue(filter.isReady());
+    assertTrue(filter.mightContain("maxim.chikilev@gmail.com"));
+    assertTrue(filter.mightContain("tolya.chikilev@gmail.com"));
+    assertFalse(filter.mightContain(null));
+  }
+
+  @Test
+  void keepsFalsePositivesNearConfiguredRate() {
+    when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+    filter.rebuild();
+    for (int i = 0; i < 10_000; i++) {
+      filter.put("user" + i + "@example.com");
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(filter.mightContain("user" + i + "@example.com"));
+      if (filter.mightContain("other" + i + "@example.com")) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+  }
+}
@@ -0,0 +1,107 @@
+package com.example.userservice;
+
+import com.example.userservice.controller.IdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final IdempotencyStore store =
+      new IdempotencyStore(meterRegistry, 100, Duration.ofHours(1), Duration.ofSeconds(5));
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  void replaysCompletedResponses() {
+    ResponseEntity<?> first = store.execute("POST /users", "key-1", "maxim", this::created);
+    ResponseEntity<?> retry = store.execute("POST /users", "key-1", "maxim", this::created);
+
+    assertEquals(1, calls.get());
+    assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+    assertEquals(first.getBody(), retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    assertEquals(0.5, store.replayRatio());
+    assertEquals(1.0, requests("replayed"));
+
+    store.execute("PUT /users", "key-1", "maxim", this::created);
+    store.execute("POST /users", null, "maxim", this::created);
+    assertEquals(3, calls.get());
+    assertEquals(
+        HttpStatus.UNPROCESSABLE_ENTITY,
+        store.execute("POST /users", "key-1", "tolya", this::created).getStatusCode());
+  }
+
+  @Test
+  void mergesConcurrentRequestsWithTheSameKey() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<ResponseEntity<?>> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                store.execute(
+                    "POST /users",
+                    "key-2",
+                    "maxim",
+                    () -> {
+                      started.countDown();
+                      await(release);
+                      return created();
+                    }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<ResponseEntity<?>> second =
+        CompletableFuture.supplyAsync(
+            () -> store.execute("POST /users", "key-2", "maxim", this::created));
+    Thread.sleep(100);
+    assertFalse(second.isDone());
+    release.countDown();
+
+    assertEquals(
+        first.get(5, TimeUnit.SECONDS).getBody(), second.get(5, TimeUnit.SECONDS).getBody());
+    assertEquals(1, calls.get());
+    assertEquals(1.0, requests("merged"));
+  }
+
+  @Test
+  void doesNotStoreFailures() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            store.execute(
+                "POST /users",
+                "key-3",
+                "maxim",
+                () -> {
+                  throw new IllegalStateException("database down");
+                }));
+    assertEquals(
+        HttpStatus.CREATED,
+        store.execute("POST /users", "key-3", "maxim", this::created).getStatusCode());
+    assertEquals(1, calls.get());
+    assertEquals(0.0, store.replayRatio());
+  }
+
+  private double requests(String result) {
+    return meterRegistry.get("users.idempotency.requests").tag("result", result).counter().count();
+  }
+
+  private ResponseEntity<?> created() {
+    return ResponseEntity.status(HttpStatus.CREATED).body("user-" + calls.incrementAndGet());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
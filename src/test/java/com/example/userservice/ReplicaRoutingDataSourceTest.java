@@ -0,0 +1,119 @@
+package com.example.userservice;
+
+import com.example.userservice.config.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicaRoutingDataSourceTest {
+  private final DataSource primary = h2("routing-primary");
+  private final DataSource replicaOne = h2("routing-replica-one");
+  private final DataSource replicaTwo = h2("routing-replica-two");
+  private ReplicaRoutingDataSource routingDataSource;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readOnly;
+  private TransactionTemplate readWrite;
+
+  @BeforeEach
+  void setUp() {
+    marker(primary, "primary");
+    marker(replicaOne, "replica-one");
+    marker(replicaTwo, "replica-two");
+    routingDataSource =
+        new ReplicaRoutingDataSource(primary, List.of(replicaOne, replicaTwo), Duration.ofSeconds(5));
+    DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    readWrite = new TransactionTemplate(transactionManager);
+  }
+
+  @AfterEach
+  void tearDown() {
+    for (DataSource dataSource : List.of(primary, replicaOne, replicaTwo)) {
+      new JdbcTemplate(dataSource).execute("drop all objects");
+    }
+  }
+
+  @Test
+  void routesReadOnlyTransactionsToHealthyReplicas() {
+    replicate(replicaOne, 0);
+    replicate(replicaTwo, 0);
+    routingDataSource.checkReplicas();
+    assertEquals(List.of("replica-0", "replica-1"), routingDataSource.getHealthyReplicas());
+
+    assertEquals("primary", readWrite.execute(status -> marker()));
+    assertEquals("primary", marker());
+    String first = readOnly.execute(status -> marker());
+    String second = readOnly.execute(status -> marker());
+    assertNotEquals(first, second);
+    assertTrue(List.of("replica-one", "replica-two").containsAll(List.of(first, second)));
+  }
+
+  @Test
+  void skipsLaggingAndUnreachableReplicas() {
+    replicate(replicaOne, Duration.ofMinutes(1).toMillis());
+    routingDataSource.checkReplicas();
+    assertEquals(List.of(), routingDataSource.getHealthyReplicas());
+    assertEquals("primary", readOnly.execute(status -> marker()));
+
+    replicate(replicaTwo, 0);
+    routingDataSource.checkReplicas();
+    assertEquals(List.of("replica-1"), routingDataSource.getHealthyReplicas());
+    assertEquals("replica-two", readOnly.execute(status -> marker()));
+    assertEquals("replica-two", readOnly.execute(status -> marker()));
+  }
+
+  @Test
+  void keepsOneHeartbeatRowOnThePrimary() throws InterruptedException {
+    JdbcTemplate primaryTemplate = new JdbcTemplate(primary);
+    routingDataSource.checkReplicas();
+    Timestamp first =
+        primaryTemplate.queryForObject("select beat from replication_heartbeat", Timestamp.class);
+
+    Thread.sleep(10);
+    routingDataSource.checkReplicas();
+    String count = "select count(*) from replication_heartbeat";
+    assertEquals(1, primaryTemplate.queryForObject(count, Integer.class));
+    Timestamp second =
+        primaryTemplate.queryForObject("select beat from replication_heartbeat", Timestamp.class);
+    assertTrue(second.after(first));
+  }
+
+  private String marker() {
+    return jdbcTemplate.queryForObject("select name from marker", String.class);
+  }
+
+  private static void marker(DataSource dataSource, String name) {
+    JdbcTemplate template = new JdbcTemplate(dataSource);
+    template.execute("create table marker (name varchar(32))");
+    template.update("insert into marker values (?)", name);
+  }
+
+  /** Stands in for replication: copies a heartbeat that is {@code lagMillis} old. */
+  private static void replicate(DataSource replica, long lagMillis) {
+    JdbcTemplate template = new JdbcTemplate(replica);
+    template.execute(
+        "create table if not exists replication_heartbeat (id int primary key, beat timestamp)");
+    template.update(
+        "merge into replication_heartbeat (id, beat) key (id) values (1, ?)",
+        new Timestamp(System.currentTimeMillis() - lagMillis));
+  }
+
+  private static DataSource h2(String name) {
+    return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+  }
+}
@@ -0,0 +1,103 @@
+package com.example.userservice;
+
+import com.example.userservice.config.ReplicaRoutingDataSource;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.service.EmailBloomFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * A batch create reads through a replica first, to look for taken emails, and must still insert
+ * on the primary.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReplicaWriteRoutingTest {
+  private static final String PRIMARY_URL = "jdbc:h2:mem:write-routing-primary;DB_CLOSE_DELAY=-1";
+  private static final String REPLICA_URL = "jdbc:h2:mem:write-routing-replica;DB_CLOSE_DELAY=-1";
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private ReplicaRoutingDataSource replicaRoutingDataSource;
+  @Autowired private HikariConfig replicaPoolSettings;
+  @MockBean private EmailBloomFilter emailFilter;
+
+  /**
+   * The replica is a separate database that never receives the primary's writes. It holds just
+   * enough schema for the duplicate email lookup and a heartbeat that keeps it healthy.
+   */
+  @DynamicPropertySource
+  static void replica(DynamicPropertyRegistry registry) {
+    JdbcTemplate replica = new JdbcTemplate(h2(REPLICA_URL));
+    replica.execute(
+        "create table if not exists custom_user (id bigint primary key, email varchar(255))");
+    replica.execute(
+        "create table if not exists replication_heartbeat "
+            + "(id int primary key, beat timestamp not null)");
+    replica.update(
+        "merge into replication_heartbeat (id, beat) key (id) "
+            + "values (1, timestamp '2999-01-01 00:00:00')");
+    registry.add("spring.datasource.url", () -> PRIMARY_URL);
+    registry.add("users.datasource.replica-urls", () -> REPLICA_URL);
+  }
+
+  @Test
+  void batchCreateWritesToThePrimary() throws Exception {
+    assertEquals(List.of("replica-0"), replicaRoutingDataSource.getHealthyReplicas());
+    when(emailFilter.mightContain(any())).thenReturn(true);
+    UserDTO userDTO =
+        new UserDTO(
+            "routed@gmail.com",
+            "Maxim",
+            "Chikilev",
+            new SimpleDateFormat("yyyy-MM-dd").parse("1980-10-10"),
+            "",
+            "");
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(userDTO))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.created[0].email").value("routed@gmail.com"));
+
+    assertEquals(1, count(PRIMARY_URL));
+    assertEquals(0, count(REPLICA_URL));
+  }
+
+  @Test
+  void poolsTakeTheHikariSettings() {
+    assertEquals(20, replicaPoolSettings.getMaximumPoolSize());
+  }
+
+  private static int count(String url) {
+    return new JdbcTemplate(h2(url))
+        .queryForObject(
+            "select count(*) from custom_user where email = 'routed@gmail.com'", Integer.class);
+  }
+
+  private static DriverManagerDataSource h2(String url) {
+    return new DriverManagerDataSource(url, "user", "111");
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.userservice;
+
+import com.example.userservice.metrics.RequestTimingFilter;
+import com.example.userservice.metrics.RequestTimings;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestTimingFilterTest {
+
+  @Test
+  void recordsLayerTimingsPerEndpoint() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RequestTimingFilter filter = new RequestTimingFilter(meterRegistry);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+    filter.doFilter(
+        request,
+        new MockHttpServletResponse(),
+        (req, res) -> {
+          req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/users/{id}");
+          RequestTimings.record(RequestTimings.Layer.VALIDATION, TimeUnit.MILLISECONDS.toNanos(2));
+          RequestTimings.record(RequestTimings.Layer.DATABASE, TimeUnit.MILLISECONDS.toNanos(5));
+          RequestTimings.record(RequestTimings.Layer.DATABASE, TimeUnit.MILLISECONDS.toNanos(3));
+        });
+
+    Timer database =
+        meterRegistry
+            .get("users.request.layer")
+            .tags("uri", "/users/{id}", "layer", "database")
+            .timer();
+    assertEquals(1, database.count());
+    assertEquals(8, database.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    Timer validation =
+        meterRegistry
+            .get("users.request.layer")
+            .tags("uri", "/users/{id}", "layer", "validation")
+            .timer();
+    assertEquals(2, validation.totalTime(TimeUnit.MILLISECONDS), 0.001);
+  }
+
+  @Test
+  void recordingOutsideARequestIsIgnored() {
+    assertDoesNotThrow(() -> RequestTimings.record(RequestTimings.Layer.DATABASE, 1));
+  }
+}
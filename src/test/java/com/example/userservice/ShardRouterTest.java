@@ -0,0 +1,93 @@
+package com.example.userservice;
+
+import com.example.userservice.config.ShardRoutingDataSource;
+import com.example.userservice.repo.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRouterTest {
+  private final List<DataSource> shards =
+      List.of(h2("router-shard-0"), h2("router-shard-1"), h2("router-shard-2"));
+  private ShardRouter shardRouter;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < shards.size(); i++) {
+      JdbcTemplate template = new JdbcTemplate(shards.get(i));
+      template.execute("create table marker (name varchar(32))");
+      template.update("insert into marker values (?)", "shard-" + i);
+    }
+    DataSource dataSource = new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    shardRouter =
+        new ShardRouter(new DataSourceTransactionManager(dataSource), List.of("a", "b", "c"), 4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    shardRouter.shutdown();
+    for (DataSource shard : shards) {
+      new JdbcTemplate(shard).execute("drop all objects");
+    }
+  }
+
+  @Test
+  void routesByIdAndRestoresPreviousShard() {
+    assertTrue(shardRouter.isSharded());
+    assertEquals(1, shardRouter.shardOf(4L));
+    assertEquals("shard-1", shardRouter.onShard(shardRouter.shardOf(4L), this::marker));
+    assertEquals(
+        "shard-0",
+        shardRouter.onShard(
+            0,
+            () -> {
+              shardRouter.onShard(2, () -> assertEquals("shard-2", marker()));
+              return marker();
+            }));
+    assertEquals(0, ShardRouter.currentShard());
+    assertEquals(
+        Map.of(0, List.of(3L, 6L), 1, List.of(1L), 2, List.of(5L)),
+        shardRouter.groupByShard(List.of(5L, 3L, 1L, 6L)));
+  }
+
+  @Test
+  void queriesEveryShardInShardOrder() {
+    assertEquals(
+        List.of("shard-0", "shard-1", "shard-2"), shardRouter.queryEveryShard(this::marker));
+    assertEquals(
+        List.of("shard-0:[3, 6]", "shard-1:[1]", "shard-2:[5]"),
+        shardRouter.queryByIds(List.of(5L, 3L, 1L, 6L), ids -> List.of(marker() + ":" + ids)));
+  }
+
+  @Test
+  void mergesSortedListsWithOffsetAndLimit() {
+    List<List<Integer>> lists =
+        List.of(List.of(1, 4, 7), List.of(2, 5), List.of(), List.of(3, 6, 8));
+    assertEquals(List.of(3, 4, 5, 6), ShardRouter.merge(lists, Comparator.naturalOrder(), 2, 4));
+    assertEquals(
+        List.of(1, 2, 3, 4, 5, 6, 7, 8),
+        ShardRouter.merge(lists, Comparator.naturalOrder(), 0, Integer.MAX_VALUE));
+    assertEquals(List.of(), ShardRouter.merge(lists, Comparator.naturalOrder(), 8, 4));
+  }
+
+  private String marker() {
+    return jdbcTemplate.queryForObject("select name from marker", String.class);
+  }
+
+  private static DataSource h2(String name) {
+    return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+  }
+}
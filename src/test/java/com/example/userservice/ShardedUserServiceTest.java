@@ -0,0 +1,110 @@
+package com.example.userservice;
+
+import com.example.userservice.config.ShardRoutingDataSource;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.repo.ShardAwareIdGenerator;
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(
+    properties = {
+      "users.sharding.shard-urls="
+          + ShardedUserServiceTest.SHARD_0 + "," + ShardedUserServiceTest.SHARD_1
+    })
+public class ShardedUserServiceTest {
+  static final String SHARD_0 = "jdbc:h2:mem:sharded-service-0;DB_CLOSE_DELAY=-1";
+  static final String SHARD_1 = "jdbc:h2:mem:sharded-service-1;DB_CLOSE_DELAY=-1";
+
+  @Autowired private UserService userService;
+  @Autowired private ShardRouter shardRouter;
+  @Autowired private ShardRoutingDataSource shardRoutingDataSource;
+  private final Date birthday = new SimpleDateFormat("yyyy-MM-dd").parse("1980-10-10");
+
+  public ShardedUserServiceTest() throws ParseException {}
+
+  @Test
+  void refusesEmailsHeldOnAnotherShard() {
+    CustomUser first = userService.create(user("first@gmail.com"));
+    CustomUser second = userService.create(user("second@gmail.com"));
+    assertTrue(shardRouter.isSharded());
+    assertNotEquals(shardRouter.shardOf(first.getId()), shardRouter.shardOf(second.getId()));
+
+    assertThrows(
+        DuplicateKeyException.class, () -> userService.createAll(List.of(user("first@gmail.com"))));
+
+    CustomUser changed =
+        new CustomUser(second.getId(), "first@gmail.com", "Tolya", "Chikilev", birthday, "", "");
+    assertThrows(DuplicateKeyException.class, () -> userService.update(changed));
+
+    UserPatchDTO patch = new UserPatchDTO();
+    patch.setEmail("first@gmail.com");
+    assertThrows(DuplicateKeyException.class, () -> userService.patch(second.getId(), patch));
+
+    CustomUser unchanged =
+        new CustomUser(second.getId(), "second@gmail.com", "Tolya", "Chikilev", birthday, "", "");
+    assertTrue(userService.update(unchanged));
+  }
+
+  @Test
+  void storesEveryRowOnTheShardOfItsId() {
+    int blockSize = ShardAwareIdGenerator.INCREMENT;
+    List<Long> created = new ArrayList<>();
+    for (int i = 0; i <= blockSize; i++) {
+      created.add(userService.create(user("single" + i + "@gmail.com")).getId());
+    }
+    for (String prefix : List.of("batch", "next")) {
+      List<UserDTO> batch = new ArrayList<>();
+      for (int i = 0; i < 3 * blockSize; i++) {
+        batch.add(user(prefix + i + "@gmail.com"));
+      }
+      userService.createAll(batch).forEach(user -> created.add(user.getId()));
+    }
+
+    List<Set<Long>> stored = new ArrayList<>();
+    for (String url : List.of(SHARD_0, SHARD_1)) {
+      stored.add(
+          new HashSet<>(
+              new JdbcTemplate(new DriverManagerDataSource(url, "user", "111"))
+                  .queryForList("select id from custom_user", Long.class)));
+    }
+    for (Long id : created) {
+      int shard = shardRouter.shardOf(id);
+      assertTrue(stored.get(shard).contains(id), "user " + id + " missing on shard " + shard);
+      assertFalse(stored.get(1 - shard).contains(id), "user " + id + " on shard " + (1 - shard));
+    }
+  }
+
+  @Test
+  void shardPoolsTakeTheHikariSettings() {
+    for (int shard = 0; shard < shardRoutingDataSource.getShardCount(); shard++) {
+      HikariDataSource pool = (HikariDataSource) shardRoutingDataSource.getShard(shard);
+      assertEquals(20, pool.getMaximumPoolSize());
+      assertEquals("shard-" + shard, pool.getPoolName());
+    }
+  }
+
+  private UserDTO user(String email) {
+    return new UserDTO(email, "Maxim", "Chikilev", birthday, "", "");
+  }
+}
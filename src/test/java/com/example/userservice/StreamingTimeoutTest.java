@@ -0,0 +1,81 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.ImportSummaryDTO;
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.service.UserCsvImporter;
+import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Date;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/** Streams that outlast {@code spring.mvc.async.request-timeout} must still complete. */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.mvc.async.request-timeout=200ms")
+public class StreamingTimeoutTest {
+  private static final long SLOWER_THAN_TIMEOUT_MILLIS = 600;
+
+  @Autowired private TestRestTemplate restTemplate;
+  @Autowired private ObjectMapper objectMapper;
+  @MockBean private UserService userService;
+  @MockBean private UserCsvImporter userCsvImporter;
+
+  @Test
+  void exportOutlivesTheAsyncRequestTimeout() {
+    doAnswer(
+            invocation -> {
+              Consumer<CustomUser> consumer = invocation.getArgument(0);
+              consumer.accept(user(1L));
+              Thread.sleep(SLOWER_THAN_TIMEOUT_MILLIS);
+              consumer.accept(user(2L));
+              return null;
+            })
+        .when(userService)
+        .exportAll(any());
+
+    ResponseEntity<String> response = restTemplate.getForEntity("/users/export", String.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(2, response.getBody().split("\n").length);
+  }
+
+  @Test
+  void importOutlivesTheAsyncRequestTimeout() throws Exception {
+    when(userCsvImporter.importCsv(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(SLOWER_THAN_TIMEOUT_MILLIS);
+              return new ImportSummaryDTO(2, 0);
+            });
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+    ResponseEntity<String> response =
+        restTemplate.postForEntity(
+            "/users/import", new HttpEntity<>("email\n", headers), String.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(2, objectMapper.readTree(response.getBody()).get("imported").asInt());
+  }
+
+  private static CustomUser user(long id) {
+    return new CustomUser(
+        id, "user" + id + "@gmail.com", "Maxim", "Chikilev", new Date(0), "", "");
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.UserChangeEventDTO;
+import com.example.userservice.service.UserChangeLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserChangeLogTest {
+  private final UserChangeLog changeLog = new UserChangeLog(3);
+
+  @Test
+  void readsEventsAfterSequence() {
+    assertEquals(List.of(), changeLog.readAfter(0, 10));
+    changeLog.publish(UserChangeEventDTO.Type.CREATED, 1L);
+    changeLog.publish(UserChangeEventDTO.Type.UPDATED, 1L);
+    changeLog.publish(UserChangeEventDTO.Type.DELETED, 1L);
+
+    List<UserChangeEventDTO> events = changeLog.readAfter(0, 2);
+    assertEquals(2, events.size());
+    assertEquals(1, events.get(0).getSequence());
+    assertEquals(UserChangeEventDTO.Type.UPDATED, events.get(1).getType());
+    assertEquals(3, changeLog.readAfter(2, 10).get(0).getSequence());
+    assertEquals(List.of(), changeLog.readAfter(3, 10));
+  }
+
+  @Test
+  void reportsGapOnceEventsAreOverwritten() {
+    for (long id = 1; id <= 5; id++) {
+      changeLog.publish(UserChangeEventDTO.Type.CREATED, id);
+    }
+    assertNull(changeLog.readAfter(1, 10), "Sequence 2 was overwritten");
+    assertEquals(3, changeLog.readAfter(2, 10).size());
+    assertNull(changeLog.readAfter(6, 10), "Sequence from before a restart");
+  }
+
+  @Test
+  void eventIdsOfAnotherRunReadAsAGap() {
+    changeLog.publish(UserChangeEventDTO.Type.CREATED, 1L);
+    changeLog.publish(UserChangeEventDTO.Type.CREATED, 2L);
+    assertEquals(1, changeLog.sequenceOf(changeLog.eventId(1)));
+    assertEquals(1, changeLog.readAfter(changeLog.sequenceOf(changeLog.eventId(1)), 10).size());
+
+    assertEquals(UserChangeLog.UNKNOWN, changeLog.sequenceOf("0-1"));
+    assertEquals(UserChangeLog.UNKNOWN, changeLog.sequenceOf("1"));
+    assertEquals(UserChangeLog.UNKNOWN, changeLog.sequenceOf(changeLog.eventId(1) + "x"));
+    assertNull(changeLog.readAfter(UserChangeLog.UNKNOWN, 10));
+  }
+}
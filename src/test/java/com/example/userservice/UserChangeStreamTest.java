@@ -0,0 +1,81 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.UserChangeEventDTO;
+import com.example.userservice.service.UserChangeLog;
+import com.example.userservice.service.UserChangeStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserChangeStreamTest {
+  private final UserChangeLog changeLog = new UserChangeLog(100);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<SseEmitter.SseEventBuilder> received = new CopyOnWriteArrayList<>();
+  private final Queue<SseEmitter> emitters =
+      new ArrayDeque<>(List.of(stalledEmitter(), recordingEmitter()));
+  private final UserChangeStream changeStream =
+      new UserChangeStream(
+          changeLog, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofMillis(200)) {
+        @Override
+        protected SseEmitter createEmitter(long timeoutMillis) {
+          return emitters.remove();
+        }
+      };
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    release.countDown();
+    changeStream.stop();
+  }
+
+  @Test
+  void stalledSubscriberDoesNotHoldBackOthers() throws InterruptedException {
+    changeStream.start();
+    changeStream.subscribe(changeLog.eventId(0));
+    changeStream.subscribe(changeLog.eventId(0));
+
+    changeLog.publish(UserChangeEventDTO.Type.CREATED, 1L);
+    changeLog.publish(UserChangeEventDTO.Type.CREATED, 2L);
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while ((received.size() < 2 || changeStream.subscriberCount() > 1)
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(2, received.size());
+    assertEquals(1, changeStream.subscriberCount(), "The stalled subscriber is dropped");
+  }
+
+  private SseEmitter stalledEmitter() {
+    return new SseEmitter() {
+      @Override
+      public void send(SseEventBuilder builder) throws IOException {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IOException("Client went away");
+      }
+    };
+  }
+
+  private SseEmitter recordingEmitter() {
+    return new SseEmitter() {
+      @Override
+      public void send(SseEventBuilder builder) {
+        received.add(builder);
+      }
+    };
+  }
+}
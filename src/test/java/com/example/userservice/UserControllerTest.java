@@ -1,42 +1,80 @@
 package com.example.userservice;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.example.userservice.controller.GlobalExceptionHandler;
+import com.example.userservice.controller.IdempotencyStore;
 import com.example.userservice.controller.UserController;
 import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.IngestStatusDTO;
+import com.example.userservice.dto.LookupResponseDTO;
+import com.example.userservice.dto.PageDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.dto.UserVersionDTO;
 import com.example.userservice.entity.CustomUser;
 import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.metrics.TimedJacksonHttpMessageConverter;
+import com.example.userservice.metrics.TimedSmileHttpMessageConverter;
+import com.example.userservice.service.UserIngestQueue;
 import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @ExtendWith(MockitoExtension.class)
 public class UserControllerTest {
   @Mock private UserService userService;
+  @Mock private UserIngestQueue userIngestQueue;
+  @Spy private ObjectMapper objectMapper = new ObjectMapper();
+
+  @Spy
+  private IdempotencyStore idempotencyStore =
+      new IdempotencyStore(
+          new SimpleMeterRegistry(), 100, Duration.ofHours(1), Duration.ofSeconds(5));
+
   @InjectMocks private UserController userController;
   private MockMvc mockMvc;
-  private ObjectMapper objectMapper;
   private ErrorResponseDTO errorResponseDTO;
   private SimpleDateFormat sdf;
   private UserDTO userDTO;
@@ -44,9 +82,11 @@ public class UserControllerTest {
 
   @BeforeEach
   void setUp() throws ParseException {
-    mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+    mockMvc =
+        MockMvcBuilders.standaloneSetup(userController)
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
     errorResponseDTO = new ErrorResponseDTO();
-    objectMapper = new ObjectMapper();
     sdf = new SimpleDateFormat("yyyy-MM-dd");
     expectedDate = sdf.parse("1980-10-10");
   }
@@ -89,6 +129,206 @@ public class UserControllerTest {
         .andExpect(jsonPath("$", hasSize(5)));
   }
 
+  @Test
+  void addNewUserWithIdempotencyKey() throws Exception {
+    userDTO = new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    CustomUser customUser =
+        new CustomUser(1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(errorResponseDTO);
+    when(userService.create(any(UserDTO.class))).thenReturn(customUser);
+    for (int attempt = 0; attempt < 2; attempt++) {
+      mockMvc
+          .perform(
+              post("/users")
+                  .header(IdempotencyStore.HEADER, "create-maxim")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(userDTO)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("id").value(1L))
+          .andExpect(
+              attempt == 0
+                  ? header().doesNotExist(IdempotencyStore.REPLAYED_HEADER)
+                  : header().string(IdempotencyStore.REPLAYED_HEADER, "true"));
+    }
+    verify(userService, times(1)).create(any(UserDTO.class));
+    verify(userService, times(1)).dataCorrectnessCheck(any(UserDTO.class));
+
+    userDTO.setFirstName("Tolya");
+    mockMvc
+        .perform(
+            post("/users")
+                .header(IdempotencyStore.HEADER, "create-maxim")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDTO)))
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(
+            jsonPath("$[0]")
+                .value(UserDataErrors.IDEMPOTENCY_KEY_REUSED.getTitle() + "create-maxim"));
+    mockMvc
+        .perform(
+            post("/users")
+                .header(IdempotencyStore.HEADER, " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDTO)))
+        .andExpect(status().isBadRequest());
+    verify(userService, times(1)).create(any(UserDTO.class));
+  }
+
+  @Test
+  void addNewUserAsync() throws Exception {
+    userDTO = new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    String body = objectMapper.writeValueAsString(userDTO);
+    mockMvc
+        .perform(post("/users/async").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isNotFound());
+
+    when(userIngestQueue.isEnabled()).thenReturn(true);
+    when(userIngestQueue.isAccepting()).thenReturn(true);
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(errorResponseDTO);
+    when(userIngestQueue.submit(any(UserDTO.class))).thenReturn(IngestStatusDTO.queued("abc"));
+    mockMvc
+        .perform(post("/users/async").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isAccepted())
+        .andExpect(header().string("Location", "/users/async/abc"))
+        .andExpect(jsonPath("state").value("QUEUED"));
+
+    when(userIngestQueue.submit(any(UserDTO.class))).thenReturn(null);
+    mockMvc
+        .perform(post("/users/async").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isTooManyRequests());
+
+    when(userIngestQueue.isAccepting()).thenReturn(true, false);
+    mockMvc
+        .perform(post("/users/async").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isServiceUnavailable());
+
+    when(userIngestQueue.getStatus("abc"))
+        .thenReturn(new IngestStatusDTO("abc", IngestStatusDTO.State.CREATED, 7L, null));
+    mockMvc
+        .perform(get("/users/async/abc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("userId").value(7L));
+    mockMvc.perform(get("/users/async/missing")).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void addNewUsers() throws Exception {
+    UserDTO validUser =
+        new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    UserDTO invalidUser = new UserDTO("maxim.chikilev@gmail", "Maxim", "Chikilev", expectedDate, "", "");
+    ErrorResponseDTO invalidResponse = new ErrorResponseDTO();
+    invalidResponse.addErrorMessage(UserDataErrors.EMAIL.getTitle());
+    when(userService.dataCorrectnessCheck(validUser)).thenReturn(errorResponseDTO);
+    when(userService.dataCorrectnessCheck(invalidUser)).thenReturn(invalidResponse);
+    when(userService.createAll(List.of(validUser)))
+        .thenReturn(
+            List.of(
+                new CustomUser(
+                    1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "")));
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(validUser))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("created", hasSize(1)))
+        .andExpect(jsonPath("created[0].id").value(1L));
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(invalidUser, validUser))))
+        .andExpect(status().isMultiStatus())
+        .andExpect(jsonPath("created", hasSize(1)))
+        .andExpect(jsonPath("errors.0[0]").value(UserDataErrors.EMAIL.getTitle()));
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(invalidUser))))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("created", hasSize(0)))
+        .andExpect(jsonPath("errors.0", hasSize(1)));
+  }
+
+  @Test
+  void addDuplicateUsers() throws Exception {
+    UserDTO validUser =
+        new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    UserDTO takenUser =
+        new UserDTO("tolya.chikilev@gmail.com", "Tolya", "Chikilev", expectedDate, "", "");
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(errorResponseDTO);
+    when(userService.findDuplicateEmails(List.of(takenUser, validUser))).thenReturn(Set.of(0));
+    when(userService.findDuplicateEmails(List.of(takenUser))).thenReturn(Set.of(0));
+    when(userService.createAll(List.of(validUser)))
+        .thenReturn(
+            List.of(
+                new CustomUser(
+                    1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "")));
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(takenUser, validUser))))
+        .andExpect(status().isMultiStatus())
+        .andExpect(jsonPath("created", hasSize(1)))
+        .andExpect(
+            jsonPath("errors.0[0]")
+                .value(UserDataErrors.EMAIL_TAKEN.getTitle() + "tolya.chikilev@gmail.com"));
+
+    mockMvc
+        .perform(
+            post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(takenUser))))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("created", hasSize(0)));
+
+    when(userService.create(takenUser))
+        .thenThrow(new DuplicateKeyException(UserDataErrors.EMAIL_TAKEN.getTitle()));
+    mockMvc
+        .perform(
+            post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(takenUser)))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("message").value("User already exists"));
+  }
+
+  @Test
+  void addUserViolatingConstraints() throws Exception {
+    userDTO = new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(errorResponseDTO);
+    when(userService.create(any(UserDTO.class)))
+        .thenThrow(
+            new DataIntegrityViolationException(
+                "insert failed",
+                new ConstraintViolationException(
+                    "unique", null, "PUBLIC.UK_CUSTOM_USER_EMAIL_INDEX_A")))
+        .thenThrow(
+            new DataIntegrityViolationException(
+                "insert failed",
+                new ConstraintViolationException("not null", null, "CONSTRAINT_NN")));
+    mockMvc
+        .perform(
+            post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDTO)))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("details").value("Email is already registered"));
+    mockMvc
+        .perform(
+            post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDTO)))
+        .andExpect(status().isInternalServerError())
+        .andExpect(jsonPath("message").value("User could not be stored"));
+  }
+
   @Test
   void deleteUser() throws Exception {
     when(userService.delete(1L)).thenReturn(true);
@@ -119,6 +359,89 @@ public class UserControllerTest {
     mockMvc.perform(get("/users/1")).andExpect(status().isNotFound());
   }
 
+  @Test
+  void lookupUsers() throws Exception {
+    CustomUser customUser =
+        new CustomUser(2L, "nastya.chikilev@gmail.com", "Nastya", "Chikilev", expectedDate, "", "");
+    when(userService.lookupCorrectnessCheck(List.of(2L, 5L))).thenReturn(errorResponseDTO);
+    when(userService.lookup(List.of(2L, 5L)))
+        .thenReturn(new LookupResponseDTO(List.of(customUser), List.of(5L)));
+    mockMvc
+        .perform(
+            post("/users/lookup").contentType(MediaType.APPLICATION_JSON).content("[2,5]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("found", hasSize(1)))
+        .andExpect(jsonPath("found[0].id").value(2L))
+        .andExpect(jsonPath("missing[0]").value(5L));
+
+    when(userService.lookupCorrectnessCheck(List.of(1L, 2L, 3L)))
+        .thenReturn(ErrorResponseDTO.of(UserDataErrors.TOO_MANY_IDS.getTitle() + 2));
+    mockMvc
+        .perform(
+            post("/users/lookup").contentType(MediaType.APPLICATION_JSON).content("[1,2,3]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$[0]").value(UserDataErrors.TOO_MANY_IDS.getTitle() + 2));
+    verify(userService, never()).lookup(List.of(1L, 2L, 3L));
+  }
+
+  @Test
+  void getUserByIdConditional() throws Exception {
+    CustomUser customUser =
+        new CustomUser(
+            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", "", 3L);
+    customUser.setLastModified(new Date(1_700_000_000_000L));
+    when(userService.getUserById(1L)).thenReturn(customUser);
+    mockMvc
+        .perform(get("/users/1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"3\""))
+        .andExpect(header().exists("Last-Modified"))
+        .andExpect(jsonPath("lastModified").doesNotExist());
+
+    when(userService.getUserVersion(2L))
+        .thenReturn(new UserVersionDTO(2L, 3L, new Date(1_700_000_000_000L)));
+    mockMvc
+        .perform(get("/users/2").header("If-None-Match", "\"3\""))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    verify(userService, never()).getUserById(2L);
+
+    when(userService.getUserById(2L)).thenReturn(customUser);
+    mockMvc
+        .perform(get("/users/2").header("If-None-Match", "\"2\""))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void getUserByIdAsSmile() throws Exception {
+    MockMvc negotiatingMockMvc =
+        MockMvcBuilders.standaloneSetup(userController)
+            .setMessageConverters(
+                new TimedJacksonHttpMessageConverter(objectMapper),
+                new TimedSmileHttpMessageConverter(
+                    Jackson2ObjectMapperBuilder.json().simpleDateFormat("yyyy-MM-dd")))
+            .build();
+    when(userService.getUserById(1L))
+        .thenReturn(
+            new CustomUser(
+                1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", ""));
+    byte[] body =
+        negotiatingMockMvc
+            .perform(get("/users/1").accept("application/x-jackson-smile"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-jackson-smile"))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+    JsonNode user = new ObjectMapper(new SmileFactory()).readTree(body);
+    assertEquals("maxim.chikilev@gmail.com", user.get("email").asText());
+    assertEquals("1980-10-10", user.get("birthday").asText());
+
+    negotiatingMockMvc
+        .perform(get("/users/1"))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+  }
+
   @Test
   void getAllUsers() throws Exception {
     List<CustomUser> users = new ArrayList<>();
@@ -130,17 +453,83 @@ public class UserControllerTest {
     users.add(
         new CustomUser(
             3L, "anatoly.chikilev@gmail.com", "Anatoly", "Chikilev", expectedDate, "", ""));
-    when(userService.readAll()).thenReturn(users);
+    when(userService.readPage(null, 100)).thenReturn(new PageDTO<>(users, 3L));
     mockMvc
         .perform(get("/users"))
         .andExpect(status().isOk())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-        .andExpect(jsonPath("$", hasSize(3)));
+        .andExpect(jsonPath("content", hasSize(3)))
+        .andExpect(jsonPath("nextCursor").value(3L));
+    when(userService.readPage(3L, 2)).thenReturn(new PageDTO<>(users.subList(0, 2), null));
+    mockMvc
+        .perform(get("/users").param("after", "3").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("content", hasSize(2)))
+        .andExpect(jsonPath("nextCursor").doesNotExist());
     users = new ArrayList<>();
-    when(userService.readAll()).thenReturn(users);
+    when(userService.readPage(null, 100)).thenReturn(new PageDTO<>(users, null));
     mockMvc.perform(get("/users")).andExpect(status().isNotFound());
   }
 
+  @Test
+  void getAllUserFields() throws Exception {
+    List<String> fields = List.of("email", "firstName");
+    when(userService.fieldsCorrectnessCheck(fields)).thenReturn(errorResponseDTO);
+    when(userService.readPage(null, 100, fields))
+        .thenReturn(
+            new PageDTO<>(
+                List.of(
+                    Map.<String, Object>of(
+                        "id", 1L, "email", "maxim.chikilev@gmail.com", "firstName", "Maxim")),
+                1L));
+    mockMvc
+        .perform(get("/users").param("fields", "email,firstName"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("content", hasSize(1)))
+        .andExpect(jsonPath("content[0].email").value("maxim.chikilev@gmail.com"))
+        .andExpect(jsonPath("content[0].address").doesNotExist())
+        .andExpect(jsonPath("nextCursor").value(1L));
+
+    ErrorResponseDTO fieldErrors = new ErrorResponseDTO();
+    fieldErrors.addErrorMessage(UserDataErrors.UNKNOWN_FIELD.getTitle() + "password");
+    when(userService.fieldsCorrectnessCheck(List.of("password"))).thenReturn(fieldErrors);
+    mockMvc
+        .perform(get("/users").param("fields", "password"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$", hasSize(1)));
+  }
+
+  @Test
+  void exportUsers() throws Exception {
+    doAnswer(
+            invocation -> {
+              Consumer<CustomUser> consumer = invocation.getArgument(0);
+              consumer.accept(
+                  new CustomUser(
+                      1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", ""));
+              consumer.accept(
+                  new CustomUser(
+                      2L, "nastya.chikilev@gmail.com", "Nastya", "Chikilev", expectedDate, "", ""));
+              return null;
+            })
+        .when(userService)
+        .exportAll(any());
+    MvcResult result =
+        mockMvc.perform(get("/users/export")).andExpect(request().asyncStarted()).andReturn();
+    assertEquals(-1L, result.getRequest().getAsyncContext().getTimeout());
+    String[] lines =
+        mockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString()
+            .split("\n");
+    assertEquals(2, lines.length);
+    assertEquals(1L, objectMapper.readTree(lines[0]).get("id").asLong());
+    assertEquals(2L, objectMapper.readTree(lines[1]).get("id").asLong());
+  }
+
   @Test
   void testGetUsersByBirthdayRange() throws Exception {
     Date fromDate = expectedDate;
@@ -161,7 +550,8 @@ public class UserControllerTest {
         new CustomUser(
             3L, "anatoly.chikilev@gmail.com", "Anatoly", "Chikilev", expectedDate, "", ""));
 
-    when(userService.findUsersByBirthdayRange(any(), any())).thenReturn(users);
+    when(userService.pageCorrectnessCheck(0, 100)).thenReturn(errorResponseDTO);
+    when(userService.findUsersByBirthdayRange(any(), any(), eq(0), eq(100))).thenReturn(users);
 
     mockMvc
         .perform(
@@ -170,20 +560,77 @@ public class UserControllerTest {
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
         .andExpect(jsonPath("$", hasSize(3)));
 
+    String eTag = UserVersionDTO.eTag(users.stream().map(UserVersionDTO::of).toList());
+    when(userService.findVersionsByBirthdayRange(any(), any(), eq(0), eq(100)))
+        .thenReturn(users.stream().map(UserVersionDTO::of).toList());
+    mockMvc
+        .perform(
+            get("/users/byBirthdayRange")
+                .param("fromDate", isoFromDate)
+                .param("toDate", isoToDate)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
     users = new ArrayList<>();
-    when(userService.findUsersByBirthdayRange(any(), any())).thenReturn(users);
+    when(userService.findUsersByBirthdayRange(any(), any(), eq(0), eq(100))).thenReturn(users);
     mockMvc
         .perform(
             get("/users/byBirthdayRange").param("fromDate", isoFromDate).param("toDate", isoToDate))
         .andExpect(status().isNotFound());
+
+    when(userService.pageCorrectnessCheck(Integer.MAX_VALUE, 100))
+        .thenReturn(ErrorResponseDTO.of(UserDataErrors.PAGE_TOO_DEEP.getTitle() + 10000));
+    mockMvc
+        .perform(
+            get("/users/byBirthdayRange")
+                .param("fromDate", isoFromDate)
+                .param("toDate", isoToDate)
+                .param("page", String.valueOf(Integer.MAX_VALUE)))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$[0]").value(UserDataErrors.PAGE_TOO_DEEP.getTitle() + 10000));
+    verify(userService, never())
+        .findUsersByBirthdayRange(any(), any(), eq(Integer.MAX_VALUE), anyInt());
+  }
+
+  @Test
+  void getUsersWithUpcomingBirthdays() throws Exception {
+    List<CustomUser> users =
+        List.of(
+            new CustomUser(
+                1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", ""));
+    when(userService.pageCorrectnessCheck(0, 100)).thenReturn(errorResponseDTO);
+    when(userService.findUpcomingBirthdays(7, 0, 100)).thenReturn(users);
+    mockMvc
+        .perform(get("/users/upcomingBirthdays"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].birthdayMonthDay").doesNotExist());
+    when(userService.findUpcomingBirthdays(30, 0, 100)).thenReturn(List.of());
+    mockMvc
+        .perform(get("/users/upcomingBirthdays").param("days", "30"))
+        .andExpect(status().isNotFound());
+
+    when(userService.pageCorrectnessCheck(500, 100))
+        .thenReturn(ErrorResponseDTO.of(UserDataErrors.PAGE_TOO_DEEP.getTitle() + 10000));
+    mockMvc
+        .perform(get("/users/upcomingBirthdays").param("page", "500"))
+        .andExpect(status().isBadRequest());
   }
 
   @Test
   void updateUser() throws Exception {
     errorResponseDTO = new ErrorResponseDTO();
    CustomUser customUser =
-        new CustomUser(1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "");
-    when(userService.dataCorrectnessCheck(customUser)).thenReturn(errorResponseDTO);
+        new CustomUser(
+            1L,
+            "maxim.chikilev@gmail.com",
+            "Maxim",
+            "Chikilev",
+            sdf.parse("1980-10-10"),
+            "",
+            "",
+            3L);
+    when(userService.dataCorrectnessCheck(any())).thenReturn(errorResponseDTO);
     when(userService.update(customUser)).thenReturn(true);
 
     mockMvc
@@ -201,6 +648,25 @@ public class UserControllerTest {
                 .content(objectMapper.writeValueAsString(customUser)))
         .andExpect(status().isNotFound());
 
+    when(userService.update(customUser))
+        .thenThrow(new ObjectOptimisticLockingFailureException(CustomUser.class, 1L));
+    mockMvc
+        .perform(
+            put("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customUser)))
+        .andExpect(status().isConflict());
+
+    customUser.setVersion(null);
+    mockMvc
+        .perform(
+            put("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customUser)))
+        .andExpect(status().isPreconditionRequired())
+        .andExpect(jsonPath("$[0]").value(UserDataErrors.VERSION_REQUIRED.getTitle()));
+    verify(userService, never()).update(customUser);
+
     errorResponseDTO.addErrorMessage(UserDataErrors.EMAIL.getTitle());
     errorResponseDTO.addErrorMessage(UserDataErrors.FIRSTNAME.getTitle());
     errorResponseDTO.addErrorMessage(UserDataErrors.LASTNAME.getTitle());
@@ -215,4 +681,35 @@ public class UserControllerTest {
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$", hasSize(5)));
   }
+
+  @Test
+  void patchUser() throws Exception {
+    when(userService.patchCorrectnessCheck(any(UserPatchDTO.class))).thenReturn(errorResponseDTO);
+    when(userService.patch(eq(1L), any(UserPatchDTO.class))).thenReturn(true);
+    mockMvc
+        .perform(
+            patch("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"phoneNumber\":\"+7 900 000 00 00\"}"))
+        .andExpect(status().isOk());
+
+    when(userService.patch(eq(2L), any(UserPatchDTO.class))).thenReturn(false);
+    mockMvc
+        .perform(
+            patch("/users/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"phoneNumber\":\"+7 900 000 00 00\"}"))
+        .andExpect(status().isNotFound());
+
+    ErrorResponseDTO patchErrors = new ErrorResponseDTO();
+    patchErrors.addErrorMessage(UserDataErrors.EMAIL.getTitle());
+    when(userService.patchCorrectnessCheck(any(UserPatchDTO.class))).thenReturn(patchErrors);
+    mockMvc
+        .perform(
+            patch("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"maxim.chikilev@gmail\"}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$", hasSize(1)));
+  }
 }
@@ -0,0 +1,148 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.ImportSummaryDTO;
+import com.example.userservice.dto.RejectedRowDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.service.CsvRecordReader;
+import com.example.userservice.service.UserCsvImporter;
+import com.example.userservice.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCsvImporterTest {
+  @Mock private UserService userService;
+  private UserCsvImporter userCsvImporter;
+
+  @BeforeEach
+  void setUp() {
+    userCsvImporter = new UserCsvImporter(userService, 2, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    userCsvImporter.shutdown();
+  }
+
+  @Test
+  void readsQuotedAndMultiLineFields() throws IOException {
+    CsvRecordReader reader =
+        new CsvRecordReader(new StringReader("a,b\r\n\"x, \"\"y\"\"\",\"line1\nline2\"\nlast,"));
+    assertEquals(List.of("a", "b"), reader.next());
+    assertEquals(List.of("x, \"y\"", "line1\nline2"), reader.next());
+    assertEquals(2, reader.recordLine());
+    assertEquals(List.of("last", ""), reader.next());
+    assertEquals(4, reader.recordLine());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void importsValidRowsAndReportsRejectedOnesInFileOrder() throws IOException {
+    ErrorResponseDTO emailError = ErrorResponseDTO.of(UserDataErrors.EMAIL.getTitle());
+    when(userService.dataCorrectnessCheck(any(UserDTO.class)))
+        .thenAnswer(
+            invocation ->
+                ((UserDTO) invocation.getArgument(0)).getEmail().contains("@")
+                    ? ErrorResponseDTO.valid()
+                    : emailError);
+    String csv =
+        "firstName,lastName,email,birthday,address\n"
+            + "Maxim,Chikilev,maxim@example.com,1980-10-10,\"Moscow, Tverskaya 1\"\n"
+            + "Tolya,Chikilev,tolya,1980-10-10,\n"
+            + "\n"
+            + "Nastya,Chikileva,nastya@example.com,10/10/1980,\n"
+            + "Anna,Chikileva,anna@example.com,1990-01-01,\n"
+            + "Ivan,Petrov,ivan@example.com,1985-05-05,\n";
+    List<RejectedRowDTO> rejected = new ArrayList<>();
+
+    ImportSummaryDTO summary = userCsvImporter.importCsv(new StringReader(csv), rejected::add);
+
+    assertEquals(3, summary.getImported());
+    assertEquals(2, summary.getRejected());
+    assertEquals(
+        List.of(
+            new RejectedRowDTO(3, List.of(UserDataErrors.EMAIL.getTitle())),
+            new RejectedRowDTO(5, List.of(UserDataErrors.DATE_FORMAT.getTitle()))),
+        rejected);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<UserDTO>> batches = ArgumentCaptor.forClass(List.class);
+    verify(userService, times(3)).createAll(batches.capture());
+    assertTrue(
+        batches.getAllValues().stream()
+            .flatMap(List::stream)
+            .anyMatch(user -> "Moscow, Tverskaya 1".equals(user.getAddress())));
+  }
+
+  @Test
+  void reportsRowsOfFailedInsert() throws IOException {
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(ErrorResponseDTO.valid());
+    when(userService.createAll(anyList())).thenThrow(new IllegalStateException("db down"));
+    when(userService.create(any(UserDTO.class))).thenThrow(new IllegalStateException("db down"));
+    List<RejectedRowDTO> rejected = new ArrayList<>();
+
+    ImportSummaryDTO summary =
+        userCsvImporter.importCsv(
+            new StringReader("email,firstName,lastName,birthday\na@example.com,A,B,1980-10-10\n"),
+            rejected::add);
+
+    assertEquals(0, summary.getImported());
+    assertEquals(
+        List.of(new RejectedRowDTO(2, List.of(UserDataErrors.INSERT_FAILED.getTitle() + "db down"))),
+        rejected);
+  }
+
+  @Test
+  void retriesFailedChunkRowByRow() throws IOException {
+    when(userService.dataCorrectnessCheck(any(UserDTO.class))).thenReturn(ErrorResponseDTO.valid());
+    when(userService.createAll(anyList()))
+        .thenThrow(new DuplicateKeyException("Email is already registered: b@example.com"));
+    when(userService.create(any(UserDTO.class)))
+        .thenAnswer(
+            invocation -> {
+              UserDTO userDTO = invocation.getArgument(0);
+              if (userDTO.getEmail().equals("b@example.com")) {
+                throw new DuplicateKeyException("Email is already registered: b@example.com");
+              }
+              return new CustomUser();
+            });
+    List<RejectedRowDTO> rejected = new ArrayList<>();
+
+    ImportSummaryDTO summary =
+        userCsvImporter.importCsv(
+            new StringReader(
+                "email,firstName,lastName,birthday\n"
+                    + "a@example.com,A,B,1980-10-10\n"
+                    + "b@example.com,A,B,1980-10-10\n"),
+            rejected::add);
+
+    assertEquals(1, summary.getImported());
+    assertEquals(
+        List.of(
+            new RejectedRowDTO(
+                3,
+                List.of(
+                    UserDataErrors.INSERT_FAILED.getTitle()
+                        + "Email is already registered: b@example.com"))),
+        rejected);
+    verify(userService, times(2)).create(any(UserDTO.class));
+  }
+}
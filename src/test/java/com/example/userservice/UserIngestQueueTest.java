@@ -0,0 +1,100 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.IngestStatusDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.service.UserIngestQueue;
+import com.example.userservice.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserIngestQueueTest {
+  @Mock private UserService userService;
+  private UserIngestQueue userIngestQueue;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    userIngestQueue.shutdown();
+  }
+
+  @Test
+  void groupsQueuedUsersIntoOneBatch() throws InterruptedException {
+    userIngestQueue = queue(10, Duration.ofMillis(500));
+    when(userService.createAll(anyList()))
+        .thenReturn(List.of(created(1L), created(2L), created(3L)));
+    userIngestQueue.start();
+
+    IngestStatusDTO first = userIngestQueue.submit(user("a"));
+    userIngestQueue.submit(user("b"));
+    IngestStatusDTO third = userIngestQueue.submit(user("c"));
+    assertEquals(IngestStatusDTO.State.QUEUED, first.getState());
+
+    verify(userService, timeout(2000)).createAll(List.of(user("a"), user("b"), user("c")));
+    userIngestQueue.shutdown();
+    assertEquals(IngestStatusDTO.State.CREATED, userIngestQueue.getStatus(first.getId()).getState());
+    assertEquals(3L, userIngestQueue.getStatus(third.getId()).getUserId());
+  }
+
+  @Test
+  void retriesFailedBatchOneByOne() throws InterruptedException {
+    userIngestQueue = queue(10, Duration.ofMillis(100));
+    when(userService.createAll(anyList())).thenThrow(new IllegalStateException("batch failed"));
+    when(userService.create(user("a"))).thenReturn(created(1L));
+    when(userService.create(user("b"))).thenThrow(new IllegalStateException("duplicate"));
+    userIngestQueue.start();
+
+    IngestStatusDTO good = userIngestQueue.submit(user("a"));
+    IngestStatusDTO bad = userIngestQueue.submit(user("b"));
+    userIngestQueue.shutdown();
+
+    assertEquals(1L, userIngestQueue.getStatus(good.getId()).getUserId());
+    assertEquals(IngestStatusDTO.State.FAILED, userIngestQueue.getStatus(bad.getId()).getState());
+    assertEquals("duplicate", userIngestQueue.getStatus(bad.getId()).getError());
+  }
+
+  @Test
+  void rejectsWhenFull() {
+    userIngestQueue = queue(1, Duration.ofMillis(100));
+    assertNotNull(userIngestQueue.submit(user("a")));
+    assertNull(userIngestQueue.submit(user("b")));
+    assertEquals(1, userIngestQueue.size());
+    verify(userService, never()).createAll(any());
+  }
+
+  @Test
+  void refusesSubmissionsOnceShutDown() throws InterruptedException {
+    userIngestQueue = queue(10, Duration.ofMillis(100));
+    userIngestQueue.start();
+    userIngestQueue.shutdown();
+
+    assertFalse(userIngestQueue.isAccepting());
+    assertNull(userIngestQueue.submit(user("a")));
+    assertEquals(0, userIngestQueue.size());
+    verify(userService, never()).createAll(any());
+  }
+
+  private UserIngestQueue queue(int capacity, Duration linger) {
+    return new UserIngestQueue(
+        userService, true, capacity, 10, linger, Duration.ofMinutes(1), Duration.ofSeconds(5));
+  }
+
+  private static UserDTO user(String name) {
+    return new UserDTO(name + "@example.com", name, name, null, "", "");
+  }
+
+  private static CustomUser created(long id) {
+    return CustomUser.builder().id(id).build();
+  }
+}
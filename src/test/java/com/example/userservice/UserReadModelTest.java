@@ -0,0 +1,175 @@
+package com.example.userservice;
+
+import com.example.userservice.entity.CustomUser;
+import com.example.userservice.repo.ShardRouter;
+import com.example.userservice.repo.UserRepository;
+import com.example.userservice.service.UserReadModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+public class UserReadModelTest {
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private UserReadModel readModel;
+
+  @AfterEach
+  void tearDown() {
+    if (readModel != null) {
+      readModel.shutdown();
+    }
+  }
+
+  @Test
+  void servesLoadedUsers() {
+    readModel = readModel(UserReadModel.Consistency.READ_YOUR_WRITES);
+    when(userRepository.streamAllByOrderById())
+        .thenReturn(Stream.of(user(1L, 0, 20), user(2L, 0, 10), user(3L, 0, 10)));
+    assertFalse(readModel.isReady());
+    readModel.rebuild();
+
+    assertTrue(readModel.isReady());
+    assertEquals(3, readModel.size());
+    assertEquals("first-1-0", readModel.findById(1L).getFirstName());
+    assertNull(readModel.findById(4L));
+    assertEquals(List.of(1L, 2L, 3L), ids(readModel.findAll()));
+    assertEquals(
+        List.of(2L, 3L, 1L), ids(readModel.findByBirthdayBetween(new Date(0), new Date(30 * DAY), 0, 10)));
+    assertEquals(
+        List.of(3L), ids(readModel.findByBirthdayBetween(new Date(10 * DAY), new Date(10 * DAY), 1, 10)));
+    assertEquals(
+        List.of(),
+        ids(readModel.findByBirthdayBetween(new Date(0), new Date(30 * DAY), Long.MAX_VALUE, 10)));
+    assertEquals(
+        List.of(1L),
+        ids(readModel.findByBirthdayBetween(new Date(0), new Date(30 * DAY), 2, Integer.MAX_VALUE)));
+    assertTrue(readModel.footprintBytes() > 0);
+  }
+
+  @Test
+  void appliesWritesBeforeReturning() {
+    readModel = readModel(UserReadModel.Consistency.READ_YOUR_WRITES);
+    when(userRepository.streamAllByOrderById()).thenReturn(Stream.of(user(1L, 0, 20)));
+    readModel.putAll(List.of(user(2L, 0, 10)));
+    readModel.rebuild();
+    assertEquals(List.of(1L, 2L), ids(readModel.findAll()));
+
+    when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user(1L, 1, 5)));
+    readModel.refresh(1L);
+    assertEquals(1L, readModel.findById(1L).getVersion());
+    assertEquals(
+        List.of(1L, 2L), ids(readModel.findByBirthdayBetween(new Date(0), new Date(30 * DAY), 0, 10)));
+
+    readModel.remove(2L);
+    assertNull(readModel.findById(2L));
+    assertEquals(1, readModel.size());
+  }
+
+  @Test
+  void eventuallyAppliesWrites() throws InterruptedException {
+    readModel = readModel(UserReadModel.Consistency.EVENTUAL);
+    when(userRepository.streamAllByOrderById()).thenReturn(Stream.empty());
+    readModel.rebuild();
+    readModel.putAll(List.of(user(1L, 0, 20), user(2L, 0, 10)));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (readModel.size() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(List.of(1L, 2L), ids(readModel.findAll()));
+  }
+
+  @Test
+  void readersNeverSeeTornSnapshots() throws InterruptedException {
+    readModel = readModel(UserReadModel.Consistency.READ_YOUR_WRITES);
+    List<CustomUser> initial = new ArrayList<>();
+    for (long id = 1; id <= 1000; id++) {
+      initial.add(user(id, 0, (int) (id % 50)));
+    }
+    when(userRepository.streamAllByOrderById()).thenReturn(initial.stream());
+    readModel.rebuild();
+
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicReference<String> failure = new AtomicReference<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < 4; r++) {
+      Thread reader =
+          new Thread(
+              () -> {
+                while (writing.get() && failure.get() == null) {
+                  List<CustomUser> all = readModel.findAll();
+                  CustomUser first = all.get(0);
+                  CustomUser second = all.get(1);
+                  if (all.size() != 1000 || !first.getVersion().equals(second.getVersion())) {
+                    failure.set("torn batch: " + first + " / " + second);
+                  }
+                  CustomUser user = readModel.findById(1L);
+                  if (!user.getFirstName().equals("first-1-" + user.getVersion())) {
+                    failure.set("torn user: " + user);
+                  }
+                  List<CustomUser> range =
+                      readModel.findByBirthdayBetween(new Date(0), new Date(100 * DAY), 0, 2000);
+                  for (int i = 1; i < range.size(); i++) {
+                    if (range.get(i - 1).getBirthday().after(range.get(i).getBirthday())) {
+                      failure.set("unsorted range at " + i);
+                    }
+                  }
+                  if (range.size() != 1000) {
+                    failure.set("range size " + range.size());
+                  }
+                }
+              });
+      reader.start();
+      readers.add(reader);
+    }
+    for (int version = 1; version <= 2000 && failure.get() == null; version++) {
+      readModel.putAll(List.of(user(1L, version, version % 60), user(2L, version, version % 70)));
+    }
+    writing.set(false);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(failure.get());
+    assertEquals(2000L, readModel.findById(2L).getVersion());
+  }
+
+  private UserReadModel readModel(UserReadModel.Consistency consistency) {
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    return new UserReadModel(
+        userRepository,
+        new ShardRouter(transactionManager, List.of(), 1),
+        transactionManager,
+        new SimpleMeterRegistry(),
+        true,
+        consistency);
+  }
+
+  private static CustomUser user(long id, long version, int birthdayDay) {
+    return new CustomUser(
+        id,
+        "user" + id + "@gmail.com",
+        "first-" + id + "-" + version,
+        "Chikilev",
+        new Date(birthdayDay * DAY),
+        "",
+        "",
+        version);
+  }
+
+  private static List<Long> ids(List<CustomUser> users) {
+    return users.stream().map(CustomUser::getId).toList();
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.userservice;
+
+import com.example.userservice.config.ShardRoutingDataSource;
+import com.example.userservice.service.UserResharder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserResharderTest {
+  private final List<DataSource> shards =
+      List.of(h2("reshard-shard-0"), h2("reshard-shard-1"), h2("reshard-shard-2"));
+  private UserResharder resharder;
+
+  @BeforeEach
+  void setUp() {
+    for (DataSource shard : shards) {
+      JdbcTemplate template = new JdbcTemplate(shard);
+      template.execute(
+          "create table custom_user (id bigint primary key, email varchar(255), birthday date)");
+      template.execute("create sequence custom_user_seq start with 1 increment by 50");
+    }
+    resharder = new UserResharder(new ShardRoutingDataSource(shards), 4, 50);
+  }
+
+  @AfterEach
+  void tearDown() {
+    for (DataSource shard : shards) {
+      new JdbcTemplate(shard).execute("drop all objects");
+    }
+  }
+
+  @Test
+  void movesUsersToTheShardOfTheirId() throws SQLException {
+    JdbcTemplate first = new JdbcTemplate(shards.get(0));
+    for (long id = 1; id <= 20; id++) {
+      first.update(
+          "insert into custom_user values (?, ?, date '2000-01-01')",
+          id,
+          "user" + id + "@gmail.com");
+    }
+    new JdbcTemplate(shards.get(1))
+        .update("insert into custom_user values (22, 'user22@gmail.com', null)");
+
+    assertEquals(14, resharder.rebalance());
+
+    int total = 0;
+    for (int shard = 0; shard < shards.size(); shard++) {
+      JdbcTemplate template = new JdbcTemplate(shards.get(shard));
+      List<Long> ids = template.queryForList("select id from custom_user", Long.class);
+      for (Long id : ids) {
+        assertEquals(shard, id % 3, "user " + id + " on shard " + shard);
+      }
+      total += ids.size();
+    }
+    assertEquals(21, total);
+    assertEquals(
+        "user7@gmail.com",
+        new JdbcTemplate(shards.get(1))
+            .queryForObject("select email from custom_user where id = 7", String.class));
+    assertTrue(nextSequenceValue(shards.get(0)) > 18 / 3 + 50);
+    assertTrue(nextSequenceValue(shards.get(1)) > 22 / 3 + 50);
+
+    assertEquals(0, resharder.rebalance());
+  }
+
+  private static long nextSequenceValue(DataSource shard) {
+    return new JdbcTemplate(shard)
+        .queryForObject("select next value for custom_user_seq", Long.class);
+  }
+
+  private static DataSource h2(String name) {
+    return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+  }
+}
@@ -1,22 +1,43 @@
 package com.example.userservice;
 
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.dto.LookupResponseDTO;
+import com.example.userservice.dto.PageDTO;
+import com.example.userservice.dto.UserChangeEventDTO;
 import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.dto.UserVersionDTO;
 import com.example.userservice.entity.CustomUser;
 import com.example.userservice.repo.UserRepository;
+import com.example.userservice.service.EmailBloomFilter;
+import com.example.userservice.service.UserChangeLog;
+import com.example.userservice.service.UserReadModel;
 import com.example.userservice.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.TestPropertySource;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -24,12 +45,22 @@ import static org.mockito.Mockito.*;
 @TestPropertySource(properties = {"permissibleAge=18"})
 public class UserServiceTest {
   @MockBean private UserRepository userRepository;
+  @SpyBean private UserReadModel readModel;
   @Autowired private UserService userService;
   private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
   private final Date expectedDate = sdf.parse("1980-10-10");
 
+  @Autowired private CacheManager cacheManager;
+  @Autowired private UserChangeLog changeLog;
+  @Autowired private EmailBloomFilter emailFilter;
+
   public UserServiceTest() throws ParseException {}
 
+  @BeforeEach
+  void clearCache() {
+    cacheManager.getCache(CacheConfig.USERS_CACHE).clear();
+  }
+
   @Test
   public void testCreateUser() {
     UserDTO userDTO =
@@ -37,6 +68,7 @@ public class UserServiceTest {
 
     CustomUser expectedUser =
         CustomUser.builder()
+            .id(1L)
             .email("maxim.chikilev@gmail.com")
             .firstName("Maxim")
             .lastName("Chikilev")
@@ -56,6 +88,41 @@ public class UserServiceTest {
     assertEquals("", createdUser.getPhoneNumber());
   }
 
+  @Test
+  public void createDuplicateEmailTest() {
+    emailFilter.put("taken@gmail.com");
+    when(userRepository.existsByEmail("taken@gmail.com")).thenReturn(true);
+    UserDTO userDTO = new UserDTO("taken@gmail.com", "Maxim", "Chikilev", expectedDate, "", "");
+    assertThrows(DuplicateKeyException.class, () -> userService.create(userDTO));
+    verify(userRepository, never()).save(any(CustomUser.class));
+  }
+
+  @Test
+  public void findDuplicateEmailsTest() {
+    emailFilter.put("stored@gmail.com");
+    when(userRepository.findEmailsIn(anyCollection())).thenReturn(List.of("stored@gmail.com"));
+    List<UserDTO> userDTOs =
+        List.of(
+            new UserDTO("new@gmail.com", "Maxim", "Chikilev", expectedDate, "", ""),
+            new UserDTO("stored@gmail.com", "Tolya", "Chikilev", expectedDate, "", ""),
+            new UserDTO("new@gmail.com", "Ivan", "Chikilev", expectedDate, "", ""));
+    assertEquals(Set.of(1, 2), userService.findDuplicateEmails(userDTOs));
+  }
+
+  @Test
+  public void createAllTest() {
+    List<UserDTO> userDTOs =
+        List.of(
+            new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", expectedDate, "", ""),
+            new UserDTO("tolya.chikilev@gmail.com", "Tolya", "Chikilev", expectedDate, "", ""));
+    List<CustomUser> createdUsers = userService.createAll(userDTOs);
+    assertEquals(2, createdUsers.size());
+    assertNotNull(createdUsers.get(0).getId());
+    assertNotNull(createdUsers.get(1).getId());
+    assertEquals("maxim.chikilev@gmail.com", createdUsers.get(0).getEmail());
+    assertEquals("tolya.chikilev@gmail.com", createdUsers.get(1).getEmail());
+  }
+
   @Test
   public void dataCorrectnessCheckTest() throws ParseException{
     UserDTO userDTO =
@@ -80,7 +147,7 @@ public class UserServiceTest {
             .email("maxim.chikilev@gmail")
             .firstName("")
             .lastName("")
-            .birthday(sdf.parse("2025-10-10"))
+            .birthday(sdf.parse(LocalDate.now().plusYears(2).toString()))
             .address("")
             .phoneNumber("")
             .build();
@@ -116,20 +183,69 @@ public class UserServiceTest {
   }
 
   @Test
-  public void updateUserTest() throws ParseException {
-    CustomUser existingUser =
-        new CustomUser(
-            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "");
-    when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+  public void readPageTest() throws ParseException {
+    List<CustomUser> firstPage =
+        Arrays.asList(
+            new CustomUser(
+                1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", ""),
+            new CustomUser(
+                2L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-10-10"), "", ""),
+            new CustomUser(
+                3L, "nastya.chikileva@gmail.com", "Nastya", "Chikileva", sdf.parse("2003-10-10"), "", ""));
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(firstPage);
+    PageDTO<CustomUser> page = userService.readPage(null, 2);
+    assertEquals(firstPage.subList(0, 2), page.getContent());
+    assertEquals(2L, page.getNextCursor());
+
+    when(userRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3)))
+        .thenReturn(firstPage.subList(2, 3));
+    page = userService.readPage(2L, 2);
+    assertEquals(firstPage.subList(2, 3), page.getContent());
+    assertNull(page.getNextCursor(), "Last page should not have a next cursor");
+  }
+
+  @Test
+  public void readPageFieldsTest() {
+    List<Map<String, Object>> rows =
+        List.of(
+            Map.of("id", 1L, "email", "maxim.chikilev@gmail.com"),
+            Map.of("id", 2L, "email", "tolya.chikilev@gmail.com"));
+    when(userRepository.findFieldsByIdGreaterThan(Set.of("email"), 0L, 2)).thenReturn(rows);
+    PageDTO<Map<String, Object>> page = userService.readPage(null, 1, List.of("email", "email"));
+    assertEquals(rows.subList(0, 1), page.getContent());
+    assertEquals(1L, page.getNextCursor());
 
+    assertTrue(userService.fieldsCorrectnessCheck(List.of("id", "email")).getErrorMessages().isEmpty());
+    assertEquals(
+        List.of("Unknown field: birthdayMonthDay"),
+        userService.fieldsCorrectnessCheck(List.of("email", "birthdayMonthDay")).getErrorMessages());
+  }
+
+  @Test
+  public void exportAllTest() throws ParseException {
+    List<CustomUser> expectedUsers =
+        Arrays.asList(
+            new CustomUser(
+                1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", ""),
+            new CustomUser(
+                2L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-10-10"), "", ""));
+    when(userRepository.streamAllByOrderById()).thenReturn(expectedUsers.stream());
+    List<CustomUser> exported = new ArrayList<>();
+    userService.exportAll(exported::add);
+    assertEquals(expectedUsers, exported);
+    verify(userRepository).streamAllByOrderById();
+  }
+
+  @Test
+  public void updateUserTest() throws ParseException {
     CustomUser updatedUser =
         new CustomUser(
             1L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-10-10"), "", "");
+    when(userRepository.updateUser(updatedUser)).thenReturn(1);
     boolean result = userService.update(updatedUser);
 
     assertTrue(result, "Update should return true when user exists");
-    verify(userRepository).findById(existingUser.getId());
-    verify(userRepository).save(updatedUser);
+    verify(userRepository).updateUser(updatedUser);
 
     CustomUser nonExistingUser =
         new CustomUser(
@@ -140,29 +256,83 @@ public class UserServiceTest {
             sdf.parse("2003-10-10"),
             "",
             "");
-    when(userRepository.findById(nonExistingUser.getId())).thenReturn(Optional.empty());
+    when(userRepository.updateUser(nonExistingUser)).thenReturn(0);
 
     result = userService.update(nonExistingUser);
     assertFalse(result, "Update should return false when user does not exist");
-    verify(userRepository).findById(nonExistingUser.getId());
+    verify(userRepository).updateUser(nonExistingUser);
     verifyNoMoreInteractions(userRepository);
   }
 
+  @Test
+  public void updateStaleUserTest() throws ParseException {
+    CustomUser staleUser =
+        new CustomUser(
+            1L,
+            "tolya.chikilev@gmail.com",
+            "Tolya",
+            "Chikilev",
+            sdf.parse("2003-10-10"),
+            "",
+            "",
+            3L);
+    when(userRepository.updateUser(staleUser)).thenReturn(0);
+    when(userRepository.existsById(1L)).thenReturn(true);
+    assertThrows(OptimisticLockingFailureException.class, () -> userService.update(staleUser));
+
+    when(userRepository.existsById(1L)).thenReturn(false);
+    assertFalse(userService.update(staleUser), "Update should return false when user was deleted");
+  }
+
+  @Test
+  public void patchCorrectnessCheckTest() throws ParseException {
+    UserPatchDTO patch = new UserPatchDTO();
+    assertEquals(1, userService.patchCorrectnessCheck(patch).getErrorMessages().size());
+
+    patch.setPhoneNumber("+7 900 000 00 00");
+    assertEquals(0, userService.patchCorrectnessCheck(patch).getErrorMessages().size());
+
+    patch.setEmail("maxim.chikilev@gmail");
+    patch.setLastName("");
+    patch.setBirthday(sdf.parse("1980-10-10"));
+    assertEquals(2, userService.patchCorrectnessCheck(patch).getErrorMessages().size());
+  }
+
+  @Test
+  public void patchUserTest() {
+    UserPatchDTO patch = new UserPatchDTO();
+    patch.setPhoneNumber("+7 900 000 00 00");
+    when(userRepository.patchUser(1L, patch)).thenReturn(1);
+    assertTrue(userService.patch(1L, patch), "Patch should return true when user exists");
+
+    when(userRepository.patchUser(2L, patch)).thenReturn(0);
+    assertFalse(userService.patch(2L, patch), "Patch should return false when user does not exist");
+
+    patch.setVersion(3L);
+    when(userRepository.patchUser(1L, patch)).thenReturn(0);
+    when(userRepository.existsById(1L)).thenReturn(true);
+    assertThrows(OptimisticLockingFailureException.class, () -> userService.patch(1L, patch));
+  }
+
   @Test
   public void deleteUserTest() {
     Long userId = 1L;
-    when(userRepository.existsById(userId)).thenReturn(true);
+    long sequence = changeLog.lastSequence();
+    when(userRepository.deleteUserById(userId)).thenReturn(1);
     boolean result = userService.delete(userId);
     assertTrue(result, "Delete should return true when user exists");
-    verify(userRepository).existsById(userId);
-    verify(userRepository).deleteById(userId);
+    verify(userRepository).deleteUserById(userId);
+    UserChangeEventDTO event = changeLog.readAfter(sequence, 10).get(0);
+    assertEquals(UserChangeEventDTO.Type.DELETED, event.getType());
+    assertEquals(userId, event.getUserId());
 
     userId = 2L;
-    when(userRepository.existsById(userId)).thenReturn(false);
+    when(userRepository.deleteUserById(userId)).thenReturn(0);
     result = userService.delete(userId);
     assertFalse(result, "Delete should return false when user does not exist");
-    verify(userRepository).existsById(userId);
+    verify(userRepository).deleteUserById(userId);
     verifyNoMoreInteractions(userRepository);
+    assertEquals(sequence + 1, changeLog.lastSequence());
   }
 
   @Test
@@ -183,6 +353,98 @@ public class UserServiceTest {
     assertNull(actualUser, "Returned user should be null when user does not exist");
     verify(userRepository).findById(userId);
   }
+  @Test
+  public void getUserByIdCacheTest() throws ParseException {
+    CustomUser expectedUser =
+        new CustomUser(
+            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "");
+    when(userRepository.findById(1L)).thenReturn(Optional.of(expectedUser));
+    assertEquals(expectedUser, userService.getUserById(1L));
+    assertEquals(expectedUser, userService.getUserById(1L));
+    verify(userRepository, times(1)).findById(1L);
+
+    userService.delete(1L);
+    assertEquals(expectedUser, userService.getUserById(1L));
+    verify(userRepository, times(2)).findById(1L);
+
+    when(userRepository.findById(2L)).thenReturn(Optional.empty());
+    assertNull(userService.getUserById(2L));
+    assertNull(userService.getUserById(2L));
+    verify(userRepository, times(2)).findById(2L);
+  }
+
+  @Test
+  public void getUserByIdFromReadModelSkipsCache() throws ParseException {
+    CustomUser modelUser =
+        new CustomUser(
+            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "");
+    doReturn(true).when(readModel).isReady();
+    doReturn(modelUser).when(readModel).findById(1L);
+
+    assertEquals(modelUser, userService.getUserById(1L));
+    assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get(1L));
+    verify(userRepository, never()).findById(1L);
+  }
+
+  @Test
+  public void lookupTest() throws ParseException {
+    CustomUser cachedUser =
+        new CustomUser(
+            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "");
+    CustomUser storedUser =
+        new CustomUser(
+            2L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-10-10"), "", "");
+    cacheManager.getCache(CacheConfig.USERS_CACHE).put(1L, cachedUser);
+    when(userRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(storedUser));
+
+    LookupResponseDTO response = userService.lookup(List.of(3L, 1L, 2L, 1L));
+    assertEquals(List.of(cachedUser, storedUser), response.getFound());
+    assertEquals(List.of(3L), response.getMissing());
+    verify(userRepository).findAllById(List.of(3L, 2L));
+    assertEquals(storedUser, cacheManager.getCache(CacheConfig.USERS_CACHE).get(2L).get());
+  }
+
+  @Test
+  public void lookupCorrectnessCheckTest() {
+    List<Long> ids = new ArrayList<>();
+    for (long id = 1; id <= 1000; id++) {
+      ids.add(id);
+    }
+    assertFalse(userService.lookupCorrectnessCheck(ids).isErrorsPresent());
+    ids.add(1001L);
+    assertEquals(
+        List.of("Too many ids, at most this many can be looked up at once: 1000"),
+        userService.lookupCorrectnessCheck(ids).getErrorMessages());
+  }
+
+  @Test
+  public void pageCorrectnessCheckTest() {
+    assertFalse(userService.pageCorrectnessCheck(100, 100).isErrorsPresent());
+    assertEquals(
+        List.of("Page is too deep, at most this many rows can be skipped: 10000"),
+        userService.pageCorrectnessCheck(101, 100).getErrorMessages());
+    assertTrue(userService.pageCorrectnessCheck(Integer.MAX_VALUE, 1000).isErrorsPresent());
+    assertEquals(
+        List.of(), userService.findUsersByBirthdayRange(new Date(0), new Date(), Integer.MAX_VALUE, 1000));
+    verify(userRepository, never()).findByBirthdayBetween(any(), any(), any(PageRequest.class));
+  }
+
+  @Test
+  public void getUserVersionTest() throws ParseException {
+    CustomUser cachedUser =
+        new CustomUser(
+            1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", "", 4L);
+    cacheManager.getCache(CacheConfig.USERS_CACHE).put(1L, cachedUser);
+    assertEquals(4L, userService.getUserVersion(1L).getVersion());
+    verify(userRepository, never()).findVersionById(1L);
+
+    UserVersionDTO storedVersion = new UserVersionDTO(2L, 7L, new Date());
+    when(userRepository.findVersionById(2L)).thenReturn(Optional.of(storedVersion));
+    assertEquals(storedVersion, userService.getUserVersion(2L));
+    when(userRepository.findVersionById(3L)).thenReturn(Optional.empty());
+    assertNull(userService.getUserVersion(3L));
+  }
+
   @Test
   public void findUsersByBirthdayRangeTest() throws ParseException {
     Date fromDate = sdf.parse("1979-10-10");
@@ -192,9 +454,42 @@ public class UserServiceTest {
             1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", ""));
     expectedUsers.add(new CustomUser(
             2L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-10-10"), "", ""));
-    when(userRepository.findByBirthdayBetween(fromDate, toDate)).thenReturn(expectedUsers);
-    List <CustomUser> actualUsers = userService.findUsersByBirthdayRange(fromDate, toDate);
-    verify(userRepository).findByBirthdayBetween(fromDate, toDate);
+    PageRequest pageRequest = PageRequest.of(1, 2, Sort.by("birthday", "id"));
+    when(userRepository.findByBirthdayBetween(fromDate, toDate, pageRequest)).thenReturn(expectedUsers);
+    List <CustomUser> actualUsers = userService.findUsersByBirthdayRange(fromDate, toDate, 1, 2);
+    verify(userRepository).findByBirthdayBetween(fromDate, toDate, pageRequest);
     assertEquals(expectedUsers, actualUsers);
   }
+
+  @Test
+  public void findUpcomingBirthdaysTest() throws ParseException {
+    LocalDate today = LocalDate.now();
+    int todayMonthDay = CustomUser.monthDayOf(today);
+    List<CustomUser> expectedUsers =
+        List.of(
+            new CustomUser(
+                1L, "maxim.chikilev@gmail.com", "Maxim", "Chikilev", sdf.parse("1980-10-10"), "", ""));
+    when(userRepository.findByBirthdayMonthDayBetween(todayMonthDay, todayMonthDay, 0, 10))
+        .thenReturn(expectedUsers);
+    assertEquals(expectedUsers, userService.findUpcomingBirthdays(0, 0, 10));
+
+    int daysToNewYear = (int) ChronoUnit.DAYS.between(today, LocalDate.of(today.getYear(), 12, 31));
+    assumeTrue(daysToNewYear < 300, "Window must cross New Year for the wrap-around check");
+    int days = daysToNewYear + 5;
+    int endMonthDay = CustomUser.monthDayOf(today.plusDays(days));
+    CustomUser januaryUser =
+        new CustomUser(
+            2L, "tolya.chikilev@gmail.com", "Tolya", "Chikilev", sdf.parse("2003-01-02"), "", "");
+    when(userRepository.countByBirthdayMonthDayBetween(todayMonthDay, 1231)).thenReturn(1L);
+    when(userRepository.findByBirthdayMonthDayBetween(todayMonthDay, 1231, 0, 10))
+        .thenReturn(expectedUsers);
+    when(userRepository.findByBirthdayMonthDayBetween(101, endMonthDay, 0, 9))
+        .thenReturn(List.of(januaryUser));
+    assertEquals(
+        List.of(expectedUsers.get(0), januaryUser), userService.findUpcomingBirthdays(days, 0, 10));
+
+    when(userRepository.findByBirthdayMonthDayBetween(101, endMonthDay, 0, 1))
+        .thenReturn(List.of(januaryUser));
+    assertEquals(List.of(januaryUser), userService.findUpcomingBirthdays(days, 1, 1));
+  }
 }
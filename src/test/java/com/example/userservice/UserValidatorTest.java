@@ -0,0 +1,98 @@
+package com.example.userservice;
+
+import com.example.userservice.dto.ErrorResponseDTO;
+import com.example.userservice.dto.UserDTO;
+import com.example.userservice.dto.UserPatchDTO;
+import com.example.userservice.entity.UserDataErrors;
+import com.example.userservice.validation.BirthdayCutoffs;
+import com.example.userservice.validation.UserValidationRule;
+import com.example.userservice.validation.UserValidationRules;
+import com.example.userservice.validation.UserValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserValidatorTest {
+  private final UserValidationRules validationRules = new UserValidationRules();
+  private final BirthdayCutoffs cutoffs = new BirthdayCutoffs(18);
+  private List<UserValidationRule> rules;
+
+  @BeforeEach
+  void setUp() {
+    rules = new ArrayList<>();
+    rules.add(validationRules.emailRule());
+    rules.add(validationRules.firstNameRule());
+    rules.add(validationRules.lastNameRule());
+    rules.add(validationRules.adultRule(cutoffs));
+    rules.add(validationRules.notInFutureRule(cutoffs));
+    rules.add(validationRules.birthdayPresentRule());
+  }
+
+  @Test
+  void validUserSharesTheValidResult() {
+    UserValidator validator = new UserValidator(rules);
+    ErrorResponseDTO result = validator.validate(user(LocalDate.now().minusYears(30)));
+    assertSame(ErrorResponseDTO.valid(), result);
+    assertFalse(result.isErrorsPresent());
+    assertThrows(IllegalStateException.class, () -> result.addErrorMessage("stray"));
+    assertFalse(ErrorResponseDTO.valid().isErrorsPresent());
+  }
+
+  @Test
+  void birthdayBoundaries() {
+    UserValidator validator = new UserValidator(rules);
+    LocalDate today = LocalDate.now();
+    assertFalse(validator.validate(user(today.minusYears(18))).isErrorsPresent());
+    assertEquals(
+        List.of(UserDataErrors.DATE_YOUNG_USER.getTitle() + 18),
+        validator.validate(user(today.minusYears(18).plusDays(1))).getErrorMessages());
+    assertEquals(
+        List.of(UserDataErrors.DATE_YOUNG_USER.getTitle() + 18),
+        validator.validate(user(today)).getErrorMessages());
+    assertEquals(
+        List.of(UserDataErrors.DATE_YOUNG_USER.getTitle() + 18, UserDataErrors.DATE_FUTURE.getTitle()),
+        validator.validate(user(today.plusDays(1))).getErrorMessages());
+    assertEquals(
+        List.of(UserDataErrors.DATE_NULL.getTitle()),
+        validator.validate(new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", null, "", ""))
+            .getErrorMessages());
+  }
+
+  @Test
+  void patchRunsOnlyRulesForPresentFields() {
+    UserValidator validator = new UserValidator(rules);
+    UserPatchDTO patch = new UserPatchDTO();
+    assertEquals(
+        List.of(UserDataErrors.PATCH_EMPTY.getTitle()),
+        validator.validatePatch(patch).getErrorMessages());
+    patch.setAddress("Moscow");
+    assertSame(ErrorResponseDTO.valid(), validator.validatePatch(patch));
+    patch.setFirstName("");
+    assertEquals(
+        List.of(UserDataErrors.FIRSTNAME.getTitle()), validator.validatePatch(patch).getErrorMessages());
+  }
+
+  @Test
+  void pluggableRule() {
+    rules.add(
+        UserValidationRule.of(
+            UserPatchDTO.PHONE_NUMBER,
+            user -> ((UserDTO) user).getPhoneNumber().isEmpty() ? "Phone number cannot be empty" : null));
+    UserValidator validator = new UserValidator(rules);
+    assertEquals(
+        List.of("Phone number cannot be empty"),
+        validator.validate(user(LocalDate.now().minusYears(30))).getErrorMessages());
+  }
+
+  private static UserDTO user(LocalDate birthday) {
+    Date date = Date.from(birthday.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    return new UserDTO("maxim.chikilev@gmail.com", "Maxim", "Chikilev", date, "", "");
+  }
+}